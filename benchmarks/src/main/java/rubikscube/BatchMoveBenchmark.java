@@ -0,0 +1,79 @@
+package rubikscube;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * One layer of a breadth-first expansion: every move applied to every
+ * state of a batch, one CubieCube at a time, with CubeBatch's scalar kernel
+ * or with VectorMoveKernel. Results are per state moved.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 1, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class BatchMoveBenchmark {
+
+    // 64 KB of states, so the batch stays in the L2 cache
+    private static final int STATES = 4096;
+
+    @Param({"per-cube", "scalar-batch", "vector-batch"})
+    public String kernel;
+
+    private final CubieCube[] cubes = new CubieCube[STATES];
+    private final CubieCube child = new CubieCube();
+    private CubeBatch batch;
+    private CubeBatch children;
+
+    @Setup
+    public void setUp() {
+        batch = new CubeBatch(STATES);
+        children = new CubeBatch(STATES);
+        CubieCube walk = new CubieCube();
+        long seed = 42;
+        for (int i = 0; i < STATES; i++) {
+            seed = seed * 6364136223846793005L + 1442695040888963407L;
+            walk.move((int) ((seed >>> 33) % Moves.COUNT));
+            cubes[i] = new CubieCube(walk.corners, walk.edges);
+            batch.add(walk);
+        }
+        if (kernel.equals("vector-batch")) {
+            batch.setKernel(new VectorMoveKernel());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(STATES * Moves.COUNT)
+    public long expand() {
+        long sum = 0;
+        if (kernel.equals("per-cube")) {
+            for (int m = 0; m < Moves.COUNT; m++) {
+                for (CubieCube cube : cubes) {
+                    child.set(cube.corners, cube.edges);
+                    child.move(m);
+                    sum += child.corners ^ child.edges;
+                }
+            }
+            return sum;
+        }
+        for (int m = 0; m < Moves.COUNT; m++) {
+            batch.move(m, children);
+            sum += children.corners(0) ^ children.edges(STATES - 1);
+        }
+        return sum;
+    }
+}
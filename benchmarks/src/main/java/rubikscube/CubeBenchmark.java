@@ -0,0 +1,104 @@
+package rubikscube;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * Move application and the per-node checks every search makes, and the
+ * ways a search can return to a node after visiting a child.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CubeBenchmark {
+
+    // 60 quarter turns covering every face, in the notation applyMoves takes
+    private static final String MOVES =
+        "RUFDLBRRUUFFDDLLBBRRRUUUFFFDDDLLLBBBURFDLBUURRFFDDLLBBULFRDB";
+    private static final int[] HTM_MOVES = {
+        0, 4, 8, 9, 13, 17, 1, 5, 6, 10, 14, 15, 2, 3, 7, 11, 12, 16
+    };
+
+    private RubiksCube cube;
+    private RubiksCube scrambled;
+    private RubiksCube copy;
+    private CubieCube saved;
+
+    @Setup
+    public void setUp() {
+        cube = new RubiksCube();
+        scrambled = new RubiksCube();
+        scrambled.applyMoves(MOVES);
+        copy = new RubiksCube();
+        saved = new CubieCube();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(60)
+    public RubiksCube applyMoves() {
+        cube.applyMoves(MOVES);
+        return cube;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(18)
+    public RubiksCube applyMove() {
+        for (int m : HTM_MOVES) {
+            cube.applyMove(m);
+        }
+        return cube;
+    }
+
+    // One node expansion: every child visited, then taken back by its inverse move
+    @Benchmark
+    @OperationsPerInvocation(18)
+    public RubiksCube applyAndUndo() {
+        for (int m = 0; m < Moves.COUNT; m++) {
+            scrambled.applyMove(m);
+            scrambled.undoMove(m);
+        }
+        return scrambled;
+    }
+
+    // The same, returning to a snapshot instead
+    @Benchmark
+    @OperationsPerInvocation(18)
+    public RubiksCube applyAndRestore() {
+        scrambled.snapshot(saved);
+        for (int m = 0; m < Moves.COUNT; m++) {
+            scrambled.applyMove(m);
+            scrambled.restore(saved);
+        }
+        return scrambled;
+    }
+
+    @Benchmark
+    public RubiksCube copyInto() {
+        scrambled.copyInto(copy);
+        return copy;
+    }
+
+    @Benchmark
+    public boolean isSolved() {
+        return scrambled.isSolved();
+    }
+
+    @Benchmark
+    public String toStringNet() {
+        return scrambled.toString();
+    }
+}
@@ -0,0 +1,65 @@
+package rubikscube;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * The pattern database estimate IDA* computes at every node, and the corner
+ * database reduced by symmetry for comparison. The tables are loaded from
+ * the cache (or generated) before measuring.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class HeuristicBenchmark {
+
+    private static final int CUBES = 64;
+
+    @Param({"pattern-database", "symmetric-corners"})
+    public String table;
+
+    private Heuristic heuristic;
+    private final CubieCube[] cubes = new CubieCube[CUBES];
+
+    @Setup
+    public void setUp() {
+        heuristic = table.equals("symmetric-corners")
+            ? SymmetricCornerDatabase.load(PruningTableStore.defaultStore())
+            : PatternDatabaseHeuristic.shared();
+        // a random walk, so lookups land all over the tables
+        CubieCube walk = new CubieCube();
+        long seed = 42;
+        for (int i = 0; i < CUBES; i++) {
+            for (int j = 0; j < 20; j++) {
+                seed = seed * 6364136223846793005L + 1442695040888963407L;
+                walk.move((int) ((seed >>> 33) % Moves.COUNT));
+            }
+            cubes[i] = new CubieCube(walk.corners, walk.edges);
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(CUBES)
+    public int estimate() {
+        int sum = 0;
+        for (CubieCube c : cubes) {
+            sum += heuristic.estimate(c);
+        }
+        return sum;
+    }
+}
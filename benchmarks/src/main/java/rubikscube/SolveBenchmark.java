@@ -0,0 +1,59 @@
+package rubikscube;
+
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+/**
+ * End-to-end Solver.solve on each bundled testcases/scramble*.txt. Scrambles
+ * are read from the rubikscube.testcases directory (default ../testcases).
+ * Tables are warmed up before measuring, as Solver.solve does itself.
+ */
+@State(Scope.Thread)
+@BenchmarkMode({Mode.Throughput, Mode.AverageTime})
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 3, time = 2)
+@Fork(1)
+public class SolveBenchmark {
+
+    @Param({"01", "02", "03", "04", "05", "06", "07", "08", "09", "10",
+            "11", "12", "13", "14", "15", "16", "17", "18", "19", "20",
+            "21", "22", "23", "24", "25", "26", "27", "28", "29", "30",
+            "31", "32", "33", "34", "35", "36", "37", "38", "39", "40"})
+    public String scramble;
+
+    /** Any Solver.Strategy name, e.g. cascade or ida-star. */
+    @Param({"two-phase"})
+    public String strategy;
+
+    private Solver.Strategy parsed;
+    private CubieCube start;
+
+    @Setup
+    public void setUp() throws IOException, IncorrectFormatException {
+        String dir = System.getProperty("rubikscube.testcases", "../testcases");
+        start = new RubiksCube(dir + "/scramble" + scramble + ".txt").getCubieCube();
+        parsed = Solver.Strategy.parse(strategy);
+        new Solver().warmUp(parsed);
+    }
+
+    @Benchmark
+    public String solve() {
+        // some strategies turn the cube they are given, so start fresh each time
+        RubiksCube cube = new RubiksCube();
+        cube.restore(start);
+        return new Solver().solve(cube, parsed);
+    }
+}
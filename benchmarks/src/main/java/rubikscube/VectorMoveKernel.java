@@ -0,0 +1,66 @@
+package rubikscube;
+
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * CubeBatch's move kernel on the incubating Vector API: the same shifts,
+ * masks and adds as CubeBatch.SCALAR, on as many states at once as the
+ * CPU's widest registers hold (4 with AVX2, 8 with AVX-512). States past
+ * the last whole vector go through the scalar loop.
+ *
+ * Needs the JVM to run with --add-modules jdk.incubator.vector, which is
+ * why it lives here rather than in ../src.
+ */
+public final class VectorMoveKernel implements MoveKernel {
+
+    private static final VectorSpecies<Long> SPECIES = LongVector.SPECIES_PREFERRED;
+
+    @Override
+    public void move(int m, long[] corners, long[] edges, long[] outCorners, long[] outEdges, int n) {
+        int bound = SPECIES.loopBound(n);
+        moveCorners(m, corners, outCorners, bound);
+        moveEdges(m, edges, outEdges, bound);
+        CubeBatch.moveCorners(m, corners, outCorners, bound, n);
+        CubeBatch.moveEdges(m, edges, outEdges, bound, n);
+    }
+
+    // === HELPER FUNCTIONS ===
+
+    // Writes to out[0, bound) the corners of in after move m
+    private static void moveCorners(int m, long[] in, long[] out, int bound) {
+        int k = m * 4;
+        long keep = Moves.CORNER_KEEP[m];
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            LongVector c = LongVector.fromArray(SPECIES, in, i);
+            LongVector result = c.and(keep);
+            for (int j = k; j < k + 4; j++) {
+                LongVector slot = c.lanewise(VectorOperators.LSHR, CubeBatch.CORNER_SRC[j]);
+                LongVector t = slot.lanewise(VectorOperators.LSHR, 3).and(3).add(CubeBatch.CORNER_TWIST[j]);
+                // minus 3 where t is 3 or more, as in CubeBatch.twisted()
+                LongVector wrap = t.add(1).lanewise(VectorOperators.LSHR, 2);
+                t = t.sub(wrap.lanewise(VectorOperators.LSHL, 1)).sub(wrap);
+                result = result.or(slot.and(7).or(t.lanewise(VectorOperators.LSHL, 3))
+                    .lanewise(VectorOperators.LSHL, CubeBatch.CORNER_DST[j]));
+            }
+            result.intoArray(out, i);
+        }
+    }
+
+    // Writes to out[0, bound) the edges of in after move m
+    private static void moveEdges(int m, long[] in, long[] out, int bound) {
+        int k = m * 4;
+        long keep = Moves.EDGE_KEEP[m];
+        for (int i = 0; i < bound; i += SPECIES.length()) {
+            LongVector e = LongVector.fromArray(SPECIES, in, i);
+            LongVector result = e.and(keep);
+            for (int j = k; j < k + 4; j++) {
+                result = result.or(e.lanewise(VectorOperators.LSHR, CubeBatch.EDGE_SRC[j]).and(31)
+                    .lanewise(VectorOperators.XOR, CubeBatch.EDGE_FLIP[j])
+                    .lanewise(VectorOperators.LSHL, CubeBatch.EDGE_DST[j]));
+            }
+            result.intoArray(out, i);
+        }
+    }
+}
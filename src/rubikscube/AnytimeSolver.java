@@ -0,0 +1,151 @@
+package rubikscube;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.Flow;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.SubmissionPublisher;
+
+/**
+ * Streams progressively shorter solutions of one cube, for callers that
+ * want an answer within milliseconds and a better one if time allows.
+ *
+ * The search is an OptimalSolver: the first item is a two-phase solution,
+ * usually within a few milliseconds of start(), followed by every shorter
+ * one found, the last flagged optimal once it is proven. The stream
+ * completes when the search ends, whether by proof, budget or cancel().
+ */
+public class AnytimeSolver implements Flow.Publisher<OptimalSolver.Solution> {
+
+    private final CubieCube cube;
+    private final long budgetMillis;
+    private final OptimalSolver search;
+    private final SubmissionPublisher<OptimalSolver.Solution> publisher;
+    private final Executor searchExecutor;
+    private CancellationToken token;
+    private boolean cancelled;
+    private CompletableFuture<OptimalSolver.Solution> result;
+
+    /**
+     * The search runs on a thread of its own and items are delivered on
+     * the common pool, so they arrive while the search goes on even where
+     * the common pool has a single worker
+     * @param cube the cube to solve, not modified
+     * @param metric what a move costs
+     * @param budgetMillis time after start() by which the search stops
+     */
+    public AnytimeSolver(CubieCube cube, OptimalSolver.Metric metric, long budgetMillis) {
+        this(cube, metric, budgetMillis, PatternDatabaseHeuristic.shared(), AnytimeSolver::startSearchThread,
+            ForkJoinPool.commonPool());
+    }
+
+    /**
+     * @param heuristic admissible estimate for the optimal search
+     * @param executor runs the search and delivers items to subscribers, so
+     * needs a second thread for items to arrive before the search ends
+     */
+    public AnytimeSolver(CubieCube cube, OptimalSolver.Metric metric, long budgetMillis,
+                         Heuristic heuristic, Executor executor) {
+        this(cube, metric, budgetMillis, heuristic, executor, executor);
+    }
+
+    /**
+     * @param heuristic admissible estimate for the optimal search
+     * @param searchExecutor runs the search, holding one thread until it ends
+     * @param deliveryExecutor delivers items to subscribers
+     */
+    public AnytimeSolver(CubieCube cube, OptimalSolver.Metric metric, long budgetMillis,
+                         Heuristic heuristic, Executor searchExecutor, Executor deliveryExecutor) {
+        this.cube = new CubieCube(cube.corners, cube.edges);
+        this.budgetMillis = budgetMillis;
+        this.search = new OptimalSolver(heuristic, metric);
+        this.searchExecutor = searchExecutor;
+        this.publisher = new SubmissionPublisher<>(deliveryExecutor, Flow.defaultBufferSize());
+        search.setListener(publisher::submit);
+    }
+
+    /**
+     * Subscribe before start() to see every solution
+     */
+    @Override
+    public void subscribe(Flow.Subscriber<? super OptimalSolver.Solution> subscriber) {
+        publisher.subscribe(subscriber);
+    }
+
+    /**
+     * Starts the search on the search executor, once
+     * @return the last solution found, or null if there was none in time
+     */
+    public synchronized CompletableFuture<OptimalSolver.Solution> start() {
+        if (result == null) {
+            CancellationToken token = CancellationToken.withTimeout(budgetMillis);
+            if (cancelled) {
+                token.cancel();
+            }
+            this.token = token;
+            result = CompletableFuture.supplyAsync(() -> {
+                try {
+                    long started = System.currentTimeMillis();
+                    search.solve(cube, token);
+                    publisher.close();
+                    int[] moves = search.getMoves();
+                    return moves == null ? null : new OptimalSolver.Solution(
+                        moves, search.getLength(), search.getLowerBound(), System.currentTimeMillis() - started);
+                } catch (RuntimeException e) {
+                    publisher.closeExceptionally(e);
+                    throw e;
+                }
+            }, searchExecutor);
+        }
+        return result;
+    }
+
+    /**
+     * Stops the search at its next clock check, or before it starts; the
+     * best solution so far stays the result and the stream completes
+     */
+    public synchronized void cancel() {
+        cancelled = true;
+        if (token != null) {
+            token.cancel();
+        }
+    }
+
+    /** @return the search, for its counters once the result is done */
+    public OptimalSolver getSearch() {
+        return search;
+    }
+
+    /**
+     * Prints every improvement with the time it arrived.
+     * Usage: AnytimeSolver scrambleFile [budgetMillis] [htm|qtm]
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 3) {
+            System.err.println("usage: AnytimeSolver <scrambleFile> [budgetMillis] [htm|qtm]");
+            System.exit(1);
+        }
+        CubieCube cube = new RubiksCube(args[0]).getCubieCube();
+        long budget = args.length > 1 ? Long.parseLong(args[1]) : 10_000;
+        OptimalSolver.Metric metric = args.length > 2 ? OptimalSolver.Metric.parse(args[2]) : OptimalSolver.Metric.HALF_TURN;
+        // table loading is not part of the budget
+        PatternDatabaseHeuristic.shared();
+        TwoPhaseSolver.warmUp();
+
+        AnytimeSolver solver = new AnytimeSolver(cube, metric, budget);
+        CompletableFuture<Void> printed = solver.publisher.consume(s -> System.out.println(s.getMillis() + " ms: "
+            + s.getLength() + " " + metric + (s.isOptimal() ? " optimal" : ", lower bound " + s.getLowerBound())
+            + " (" + Moves.toStandardString(s.getMoves()) + ")"));
+        solver.start().join();
+        printed.join();
+    }
+
+    // === HELPER FUNCTIONS ===
+
+    private static void startSearchThread(Runnable search) {
+        Thread thread = new Thread(search, "anytime-solver");
+        // like a common pool worker, it does not keep the JVM alive
+        thread.setDaemon(true);
+        thread.start();
+    }
+}
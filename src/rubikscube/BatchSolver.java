@@ -0,0 +1,263 @@
+package rubikscube;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+/**
+ * Solves many scramble files in one JVM, so startup, JIT warm-up and table
+ * loading are paid once instead of per file.
+ *
+ * Inputs are solved concurrently on a fixed thread pool. The tasks share one
+ * Solver, each solve with its own context and timeout, and the same
+ * read-only tables. Each input gets a
+ * solution file of the same name in the output directory, written like
+ * Solver.main writes it; summary.csv lists every input's outcome, with
+ * the solution length in half-turn moves, and metrics.jsonl its
+ * SolveMetrics.
+ */
+public class BatchSolver {
+
+    private final Solver.Strategy strategy;
+    private final int threads;
+    private final Solver solver = new Solver();
+
+    /**
+     * @param strategy strategy used for every input
+     * @param threads inputs solved at once
+     */
+    public BatchSolver(Solver.Strategy strategy, int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("threads must be at least 1");
+        }
+        this.strategy = strategy;
+        this.threads = threads;
+        if (threads > 1) {
+            // the pool already keeps every core busy with other inputs
+            solver.setParallelism(1);
+        }
+    }
+
+    /**
+     * Usage: BatchSolver input outputDir [strategy] [threads]
+     * where input is a directory, a quoted glob like "testcases/scramble*.txt",
+     * or a manifest file listing one scramble file per line
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 2 || args.length > 4) {
+            System.err.println("usage: BatchSolver <dir|glob|manifest> <outputDir> [strategy] [threads]");
+            System.exit(1);
+        }
+        Solver.Strategy strategy = args.length > 2 ? Solver.Strategy.parse(args[2]) : Solver.Strategy.CASCADE;
+        int threads = args.length > 3 ? Integer.parseInt(args[3]) : defaultThreads(strategy);
+
+        List<Path> inputs = inputs(args[0]);
+        if (inputs.isEmpty()) {
+            System.err.println("No scramble files match " + args[0]);
+            System.exit(1);
+        }
+        BatchSolver batch = new BatchSolver(strategy, threads);
+        Summary summary = batch.solveAll(inputs, Paths.get(args[1]));
+        System.out.println(summary);
+        SolutionCache cache = batch.solver.getCache();
+        if (cache != null) {
+            cache.save();
+            System.out.println(cache);
+        }
+    }
+
+    /**
+     * @param inputs scramble files
+     * @param outputDir where solution files and summary.csv are written
+     * @return counts and throughput for the batch
+     */
+    public Summary solveAll(List<Path> inputs, Path outputDir) throws IOException, InterruptedException {
+        Files.createDirectories(outputDir);
+
+        long warmStart = System.nanoTime();
+        solver.warmUp(strategy);
+        long warmUpMillis = (System.nanoTime() - warmStart) / 1_000_000;
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<Result>> futures = new ArrayList<>();
+        long start = System.nanoTime();
+        try {
+            for (Path input : inputs) {
+                futures.add(pool.submit(() -> solveOne(input, outputDir)));
+            }
+
+            Summary summary = new Summary(threads, warmUpMillis);
+            try (PrintWriter csv = new PrintWriter(Files.newBufferedWriter(outputDir.resolve("summary.csv")));
+                 PrintWriter jsonl = new PrintWriter(Files.newBufferedWriter(outputDir.resolve("metrics.jsonl")))) {
+                csv.println("file,status,length,ms,nodes");
+                for (Future<Result> future : futures) {
+                    Result result = future.get();
+                    summary.add(result);
+                    csv.println(result.input + "," + result.status + "," + result.length + ","
+                        + result.millis + "," + result.nodes);
+                    if (result.metrics != null) {
+                        jsonl.println(result.metrics.toJson(result.input.toString()));
+                    }
+                }
+            }
+            summary.millis = (System.nanoTime() - start) / 1_000_000;
+            return summary;
+        } catch (ExecutionException e) {
+            throw new IOException("Batch task failed", e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
+    // Only throws if the solution file can't be written: a failed solve, even
+    // an Error like OutOfMemoryError, is recorded in the result and the file
+    private Result solveOne(Path input, Path outputDir) throws IOException {
+        Result result = new Result(input);
+        String text;
+        long start = System.nanoTime();
+        try {
+            String solution = solver.solve(new RubiksCube(input.toString()), strategy);
+            // only a solve that returned has its own; a failed one keeps 0 and no metrics
+            result.nodes = solver.getNodesExplored();
+            result.metrics = solver.getMetrics();
+            if (solution != null) {
+                result.status = "solved";
+                // half-turn moves: "UUU" is one move, U'
+                result.length = MoveSequence.simplify(MoveSequence.parse(solution)).length;
+                text = solution;
+            } else {
+                // the search either ran out of time or gave up at its depth or state limits
+                result.status = result.metrics.isTimedOut() ? "timeout" : "unsolved";
+                text = "No solution found - timed out";
+            }
+        } catch (IncorrectFormatException e) {
+            result.status = "error";
+            text = "Error: " + e.getMessage();
+        } catch (Exception | Error e) {
+            result.status = "error";
+            text = "Error: Could not solve cube";
+        }
+        result.millis = (System.nanoTime() - start) / 1_000_000;
+
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(outputDir.resolve(input.getFileName())))) {
+            writer.println(text);
+        }
+        return result;
+    }
+
+    // === HELPER FUNCTIONS ===
+
+    /**
+     * One input at a time for the strategies whose visited sets share the
+     * Solver's heap budget, so a deep search gets all of it; otherwise one
+     * input per core
+     */
+    static int defaultThreads(Solver.Strategy strategy) {
+        switch (strategy) {
+            case CASCADE:
+            case BIDIRECTIONAL:
+            case PARALLEL_BIDIRECTIONAL:
+            case SIMPLE_BFS:
+                return 1;
+            default:
+                return Runtime.getRuntime().availableProcessors();
+        }
+    }
+
+    /**
+     * @param spec a directory, a glob or a manifest file
+     * @return the scramble files it names, in a stable order
+     */
+    static List<Path> inputs(String spec) throws IOException {
+        List<Path> inputs = new ArrayList<>();
+        if (spec.indexOf('*') >= 0 || spec.indexOf('?') >= 0 || spec.indexOf('[') >= 0) {
+            // wildcards are only expanded in the last path element
+            Path pattern = Paths.get(spec);
+            Path dir = pattern.getParent() == null ? Paths.get(".") : pattern.getParent();
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(dir, pattern.getFileName().toString())) {
+                files.forEach(inputs::add);
+            }
+        } else if (Files.isDirectory(Paths.get(spec))) {
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(Paths.get(spec), "*.txt")) {
+                files.forEach(inputs::add);
+            }
+        } else {
+            // manifest: paths relative to the manifest's directory, # comments
+            Path manifest = Paths.get(spec);
+            Path base = manifest.toAbsolutePath().getParent();
+            for (String line : Files.readAllLines(manifest)) {
+                line = line.trim();
+                if (!line.isEmpty() && !line.startsWith("#")) {
+                    inputs.add(base.resolve(line).normalize());
+                }
+            }
+            return inputs;
+        }
+        inputs.sort(null);
+        return inputs;
+    }
+
+    private static class Result {
+        final Path input;
+        String status;
+        int length;
+        long millis;
+        long nodes;
+        SolveMetrics metrics;
+
+        Result(Path input) {
+            this.input = input;
+        }
+    }
+
+    /** Outcome counts and throughput of one batch. */
+    public static class Summary {
+        private final int threads;
+        private final long warmUpMillis;
+        private int solved;
+        private int timedOut;
+        private int unsolved;
+        private int errors;
+        private long millis;
+
+        Summary(int threads, long warmUpMillis) {
+            this.threads = threads;
+            this.warmUpMillis = warmUpMillis;
+        }
+
+        void add(Result result) {
+            switch (result.status) {
+                case "solved": solved++; break;
+                case "timeout": timedOut++; break;
+                case "unsolved": unsolved++; break;
+                default: errors++; break;
+            }
+        }
+
+        public int getSolved() {
+            return solved;
+        }
+
+        /** @return solved inputs per second of wall time, not counting table warm-up */
+        public double getThroughput() {
+            return solved * 1000.0 / Math.max(millis, 1);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%.1f solves/sec: %d solved, %d timed out, %d unsolved, %d errors in %d ms"
+                + " on %d threads (tables warmed up in %d ms)", getThroughput(), solved, timedOut, unsolved, errors,
+                millis, threads, warmUpMillis);
+        }
+    }
+}
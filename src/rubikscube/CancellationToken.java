@@ -0,0 +1,66 @@
+package rubikscube;
+
+/**
+ * Deadline and cancellation of one solve.
+ *
+ * Every search takes one of these instead of reading a shared timeout. It
+ * polls expired() once every few thousand nodes, so reading the clock
+ * costs nothing per node, and a cancel() from any thread or a passed
+ * deadline stops it within well under a millisecond. A search that stops
+ * this way reports itself timed out.
+ */
+public final class CancellationToken {
+
+    /** Nodes a search expands between two calls to expired(). */
+    public static final int NODES_BETWEEN_CHECKS = 4096;
+
+    private final long deadline;
+    private final CancellationToken parent;
+    private volatile boolean cancelled;
+
+    /**
+     * @param deadline System.currentTimeMillis() value after which the search gives up
+     */
+    public CancellationToken(long deadline) {
+        this(deadline, null);
+    }
+
+    private CancellationToken(long deadline, CancellationToken parent) {
+        this.deadline = deadline;
+        this.parent = parent;
+    }
+
+    /** @return a token expiring millis from now */
+    public static CancellationToken withTimeout(long millis) {
+        return new CancellationToken(System.currentTimeMillis() + millis);
+    }
+
+    /**
+     * @return a token for part of this solve, expiring at deadline or this
+     * token's own, whichever comes first, and cancelled along with this one
+     */
+    public CancellationToken withDeadline(long deadline) {
+        return new CancellationToken(Math.min(deadline, this.deadline), this);
+    }
+
+    /**
+     * Makes every search holding this token, or one made from it, stop at
+     * its next check; safe from any thread
+     */
+    public void cancel() {
+        cancelled = true;
+    }
+
+    public boolean isCancelled() {
+        return cancelled || parent != null && parent.isCancelled();
+    }
+
+    public long getDeadline() {
+        return deadline;
+    }
+
+    /** @return whether the search should stop; reads the clock, so call it sparingly */
+    public boolean expired() {
+        return isCancelled() || System.currentTimeMillis() > deadline;
+    }
+}
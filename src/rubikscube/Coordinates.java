@@ -0,0 +1,314 @@
+package rubikscube;
+
+/**
+ * Integer coordinates of a CubieCube and the move tables over them.
+ *
+ * Phase 1 of the two-phase solver works on
+ *   twist  (0..2186)  orientation of the corners
+ *   flip   (0..2047)  orientation of the edges
+ *   slice  (0..494)   which slots hold the FR, FL, BL, BR edges
+ * and reaches the subgroup <U, D, R2, L2, F2, B2> where all three are 0.
+ * Phase 2 works inside that subgroup on
+ *   corner perm (0..40319), U/D edge perm (0..40319), slice perm (0..23).
+ *
+ * Every coordinate has a getter and a setter; the setters build some cube
+ * with that coordinate so move tables can be made by "set, move, get".
+ */
+public final class Coordinates {
+
+    public static final int N_TWIST = 2187;
+    public static final int N_FLIP = 2048;
+    public static final int N_SLICE = 495;
+    public static final int N_PERM_8 = 40320;
+    public static final int N_SLICE_PERM = 24;
+
+    /** Version of the move table files, for every table set that loads them. */
+    static final int MOVE_TABLE_VERSION = 1;
+
+    // The moves allowed in phase 2: U, U2, U', D, D2, D', R2, F2, L2, B2
+    static final int[] PHASE2_MOVES = {0, 1, 2, 9, 10, 11, 4, 7, 13, 16};
+
+    private static final int[][] BINOMIAL = new int[12][12];
+
+    static {
+        for (int n = 0; n < 12; n++) {
+            BINOMIAL[n][0] = 1;
+            for (int k = 1; k <= n; k++) {
+                BINOMIAL[n][k] = BINOMIAL[n - 1][k - 1] + (k <= n - 1 ? BINOMIAL[n - 1][k] : 0);
+            }
+        }
+    }
+
+    private Coordinates() {
+    }
+
+    /** @return true if move m keeps a cube inside the phase 2 subgroup */
+    public static boolean isPhase2Move(int m) {
+        int face = Moves.face(m);
+        return face == CubieCube.U || face == CubieCube.D || Moves.power(m) == 2;
+    }
+
+    // === GETTERS ===
+
+    public static int twist(CubieCube c) {
+        int t = 0;
+        for (int i = 0; i < 7; i++) {
+            t = 3 * t + c.twistAt(i);
+        }
+        return t;
+    }
+
+    public static int flip(CubieCube c) {
+        int f = 0;
+        for (int i = 0; i < 11; i++) {
+            f = 2 * f + c.flipAt(i);
+        }
+        return f;
+    }
+
+    public static int slice(CubieCube c) {
+        int s = 0;
+        int found = 0;
+        for (int j = 11; j >= 0; j--) {
+            if (c.edgeAt(j) >= CubieCube.FR) {
+                s += binomial(11 - j, found + 1);
+                found++;
+            }
+        }
+        return s;
+    }
+
+    public static int cornerPerm(CubieCube c) {
+        int p = 0;
+        for (int i = 7; i > 0; i--) {
+            int higher = 0;
+            for (int j = i - 1; j >= 0; j--) {
+                if (c.cornerAt(j) > c.cornerAt(i)) higher++;
+            }
+            p = (p + higher) * i;
+        }
+        return p;
+    }
+
+    /** Only meaningful when the 8 U/D edges are in the U/D slots. */
+    public static int udEdgePerm(CubieCube c) {
+        int p = 0;
+        for (int i = 7; i > 0; i--) {
+            int higher = 0;
+            for (int j = i - 1; j >= 0; j--) {
+                if (c.edgeAt(j) > c.edgeAt(i)) higher++;
+            }
+            p = (p + higher) * i;
+        }
+        return p;
+    }
+
+    /** Only meaningful when the 4 slice edges are in the slice slots. */
+    public static int slicePerm(CubieCube c) {
+        int p = 0;
+        for (int i = 11; i > 8; i--) {
+            int higher = 0;
+            for (int j = i - 1; j >= 8; j--) {
+                if (c.edgeAt(j) > c.edgeAt(i)) higher++;
+            }
+            p = (p + higher) * (i - 8);
+        }
+        return p;
+    }
+
+    // === SETTERS ===
+
+    // Twist of the last corner is fixed by the other seven
+    public static void setTwist(CubieCube c, int twist) {
+        long packed = c.corners;
+        int sum = 0;
+        for (int i = 6; i >= 0; i--) {
+            int t = twist % 3;
+            twist /= 3;
+            sum += t;
+            packed = setField(packed, i, 3, 2, t);
+        }
+        c.corners = setField(packed, 7, 3, 2, (3 - sum % 3) % 3);
+    }
+
+    public static void setFlip(CubieCube c, int flip) {
+        long packed = c.edges;
+        int sum = 0;
+        for (int i = 10; i >= 0; i--) {
+            int f = flip & 1;
+            flip >>= 1;
+            sum += f;
+            packed = setField(packed, i, 4, 1, f);
+        }
+        c.edges = setField(packed, 11, 4, 1, sum & 1);
+    }
+
+    // Puts the slice edges where the coordinate says and the other edges in order
+    public static void setSlice(CubieCube c, int slice) {
+        boolean[] isSlice = new boolean[12];
+        for (int n = 4; n >= 1; n--) {
+            // largest k with binomial(k, n) <= slice
+            int k = n - 1;
+            while (k < 11 && binomial(k + 1, n) <= slice) k++;
+            slice -= binomial(k, n);
+            isSlice[11 - k] = true;
+        }
+
+        long packed = c.edges;
+        int udEdge = CubieCube.UR;
+        int sliceEdge = CubieCube.FR;
+        for (int j = 0; j < 12; j++) {
+            packed = setField(packed, j, 0, 4, isSlice[j] ? sliceEdge++ : udEdge++);
+        }
+        c.edges = packed;
+    }
+
+    public static void setCornerPerm(CubieCube c, int perm) {
+        int[] p = decodePerm(perm, 8);
+        long packed = c.corners;
+        for (int i = 0; i < 8; i++) {
+            packed = setField(packed, i, 0, 3, p[i]);
+        }
+        c.corners = packed;
+    }
+
+    public static void setUdEdgePerm(CubieCube c, int perm) {
+        int[] p = decodePerm(perm, 8);
+        long packed = c.edges;
+        for (int i = 0; i < 8; i++) {
+            packed = setField(packed, i, 0, 4, p[i]);
+        }
+        c.edges = packed;
+    }
+
+    public static void setSlicePerm(CubieCube c, int perm) {
+        int[] p = decodePerm(perm, 4);
+        long packed = c.edges;
+        for (int i = 0; i < 4; i++) {
+            packed = setField(packed, 8 + i, 0, 4, 8 + p[i]);
+        }
+        c.edges = packed;
+    }
+
+    // === MOVE TABLES ===
+
+    /** table[coord * 18 + m] = coordinate after move m */
+    static int[] twistMoveTable() {
+        int[] table = new int[N_TWIST * Moves.COUNT];
+        CubieCube c = new CubieCube();
+        for (int i = 0; i < N_TWIST; i++) {
+            for (int m = 0; m < Moves.COUNT; m++) {
+                setTwist(c, i);
+                c.move(m);
+                table[i * Moves.COUNT + m] = twist(c);
+            }
+        }
+        return table;
+    }
+
+    static int[] flipMoveTable() {
+        int[] table = new int[N_FLIP * Moves.COUNT];
+        CubieCube c = new CubieCube();
+        for (int i = 0; i < N_FLIP; i++) {
+            for (int m = 0; m < Moves.COUNT; m++) {
+                setFlip(c, i);
+                c.move(m);
+                table[i * Moves.COUNT + m] = flip(c);
+            }
+        }
+        return table;
+    }
+
+    static int[] sliceMoveTable() {
+        int[] table = new int[N_SLICE * Moves.COUNT];
+        CubieCube c = new CubieCube();
+        for (int i = 0; i < N_SLICE; i++) {
+            for (int m = 0; m < Moves.COUNT; m++) {
+                setSlice(c, i);
+                c.move(m);
+                table[i * Moves.COUNT + m] = slice(c);
+            }
+        }
+        return table;
+    }
+
+    static int[] cornerPermMoveTable() {
+        int[] table = new int[N_PERM_8 * Moves.COUNT];
+        CubieCube c = new CubieCube();
+        for (int i = 0; i < N_PERM_8; i++) {
+            for (int m = 0; m < Moves.COUNT; m++) {
+                setCornerPerm(c, i);
+                c.move(m);
+                table[i * Moves.COUNT + m] = cornerPerm(c);
+            }
+        }
+        return table;
+    }
+
+    /** Filled for phase 2 moves only. */
+    static int[] udEdgePermMoveTable() {
+        int[] table = new int[N_PERM_8 * Moves.COUNT];
+        CubieCube c = new CubieCube();
+        for (int i = 0; i < N_PERM_8; i++) {
+            for (int m : PHASE2_MOVES) {
+                setUdEdgePerm(c, i);
+                c.move(m);
+                table[i * Moves.COUNT + m] = udEdgePerm(c);
+            }
+        }
+        return table;
+    }
+
+    /** Filled for phase 2 moves only. */
+    static int[] slicePermMoveTable() {
+        int[] table = new int[N_SLICE_PERM * Moves.COUNT];
+        CubieCube c = new CubieCube();
+        for (int i = 0; i < N_SLICE_PERM; i++) {
+            for (int m : PHASE2_MOVES) {
+                setSlicePerm(c, i);
+                c.move(m);
+                table[i * Moves.COUNT + m] = slicePerm(c);
+            }
+        }
+        return table;
+    }
+
+    // === HELPER FUNCTIONS ===
+
+    static int binomial(int n, int k) {
+        if (k < 0 || k > n) return 0;
+        return BINOMIAL[n][k];
+    }
+
+    // Replace bits [5 * slot + offset, + width) of packed with value
+    private static long setField(long packed, int slot, int offset, int width, int value) {
+        int shift = 5 * slot + offset;
+        long mask = ((1L << width) - 1) << shift;
+        return (packed & ~mask) | ((long) value << shift);
+    }
+
+    // Inverse of the Lehmer-style ranking used by cornerPerm/udEdgePerm/slicePerm
+    private static int[] decodePerm(int perm, int n) {
+        int[] higher = new int[n];
+        for (int i = 1; i < n; i++) {
+            higher[i] = perm % (i + 1);
+            perm /= i + 1;
+        }
+        int[] p = new int[n];
+        boolean[] used = new boolean[n];
+        for (int i = n - 1; i >= 0; i--) {
+            // p[i] is the (higher[i] + 1)-th largest unused value
+            int k = higher[i];
+            for (int v = n - 1; v >= 0; v--) {
+                if (used[v]) continue;
+                if (k == 0) {
+                    p[i] = v;
+                    used[v] = true;
+                    break;
+                }
+                k--;
+            }
+        }
+        return p;
+    }
+}
@@ -0,0 +1,176 @@
+package rubikscube;
+
+/**
+ * Many cube states side by side, stored as two arrays (all corners, then
+ * all edges) rather than one object per cube, so a move can be applied to
+ * every state in one pass, as breadth-first searches and table generators
+ * expand a whole layer at a time.
+ *
+ * The scalar kernel computes what Moves.apply() looks up: the twist of a
+ * moved corner is added modulo 3 by arithmetic instead of a table. With
+ * the move fixed, every shift amount and mask is the same for all states,
+ * so the loop body is straight-line shifts, masks and adds on the array
+ * elements. move(m, into) writes the results to another batch, for
+ * expanding a frontier into its children. setKernel() swaps in another
+ * MoveKernel, such as the Vector API one in the benchmarks module.
+ */
+public class CubeBatch {
+
+    /** The plain loop every batch starts with. */
+    public static final MoveKernel SCALAR = (m, corners, edges, outCorners, outEdges, n) -> {
+        moveCorners(m, corners, outCorners, 0, n);
+        moveEdges(m, edges, outEdges, 0, n);
+    };
+
+    // Per move and moved slot: source shift, destination shift, twist or flip added
+    static final int[] CORNER_SRC = new int[Moves.COUNT * 4];
+    static final int[] CORNER_DST = new int[Moves.COUNT * 4];
+    static final int[] CORNER_TWIST = new int[Moves.COUNT * 4];
+    static final int[] EDGE_SRC = new int[Moves.COUNT * 4];
+    static final int[] EDGE_DST = new int[Moves.COUNT * 4];
+    static final int[] EDGE_FLIP = new int[Moves.COUNT * 4];
+
+    static {
+        for (int k = 0; k < Moves.COUNT * 4; k++) {
+            CORNER_SRC[k] = Moves.CORNER_SRC[k];
+            CORNER_DST[k] = Moves.CORNER_DST[k];
+            // the transform of cubie 0 untwisted is just the twist added
+            CORNER_TWIST[k] = Moves.CORNER_XFORM[k * 32] >>> 3;
+            EDGE_SRC[k] = Moves.EDGE_SRC[k];
+            EDGE_DST[k] = Moves.EDGE_DST[k];
+            EDGE_FLIP[k] = Moves.EDGE_FLIP[k];
+        }
+    }
+
+    private final long[] corners;
+    private final long[] edges;
+    private int size;
+    private MoveKernel kernel = SCALAR;
+
+    /**
+     * @param capacity states the batch can hold
+     */
+    public CubeBatch(int capacity) {
+        corners = new long[capacity];
+        edges = new long[capacity];
+    }
+
+    /**
+     * @param corners packed corners
+     * @param edges packed edges
+     * Appends a state
+     */
+    public void add(long corners, long edges) {
+        if (size == this.corners.length) {
+            throw new IllegalStateException("Batch is full: " + size + " states");
+        }
+        this.corners[size] = corners;
+        this.edges[size] = edges;
+        size++;
+    }
+
+    public void add(CubieCube cube) {
+        add(cube.corners, cube.edges);
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public int capacity() {
+        return corners.length;
+    }
+
+    public MoveKernel getKernel() {
+        return kernel;
+    }
+
+    /**
+     * @param kernel what move() runs; defaults to SCALAR
+     */
+    public void setKernel(MoveKernel kernel) {
+        this.kernel = kernel;
+    }
+
+    public void clear() {
+        size = 0;
+    }
+
+    public long corners(int i) {
+        return corners[i];
+    }
+
+    public long edges(int i) {
+        return edges[i];
+    }
+
+    /**
+     * @param out cube to overwrite with state i
+     */
+    public void get(int i, CubieCube out) {
+        out.set(corners[i], edges[i]);
+    }
+
+    /**
+     * Applies move m to every state in place
+     */
+    public void move(int m) {
+        move(m, this);
+    }
+
+    /**
+     * @param into batch with at least size() capacity, or this one; receives
+     * every state with move m applied, in the same order
+     */
+    public void move(int m, CubeBatch into) {
+        if (into.corners.length < size) {
+            throw new IllegalArgumentException("Target batch holds " + into.corners.length + " states, not " + size);
+        }
+        kernel.move(m, corners, edges, into.corners, into.edges, size);
+        into.size = size;
+    }
+
+    // === HELPER FUNCTIONS ===
+
+    // The scalar kernels, for states start to n; other kernels use them for a tail
+    static void moveCorners(int m, long[] in, long[] out, int start, int n) {
+        int k = m * 4;
+        long keep = Moves.CORNER_KEEP[m];
+        int s0 = CORNER_SRC[k], s1 = CORNER_SRC[k + 1], s2 = CORNER_SRC[k + 2], s3 = CORNER_SRC[k + 3];
+        int d0 = CORNER_DST[k], d1 = CORNER_DST[k + 1], d2 = CORNER_DST[k + 2], d3 = CORNER_DST[k + 3];
+        long t0 = CORNER_TWIST[k], t1 = CORNER_TWIST[k + 1], t2 = CORNER_TWIST[k + 2], t3 = CORNER_TWIST[k + 3];
+        for (int i = start; i < n; i++) {
+            long c = in[i];
+            out[i] = (c & keep)
+                | twisted(c >>> s0, t0) << d0
+                | twisted(c >>> s1, t1) << d1
+                | twisted(c >>> s2, t2) << d2
+                | twisted(c >>> s3, t3) << d3;
+        }
+    }
+
+    // The low 5 bits of slot (cubie, twist) with twist added modulo 3
+    private static long twisted(long slot, long twist) {
+        long t = (slot >>> 3 & 3) + twist;
+        // t is 0..4; (t + 1) >>> 2 is 1 exactly when it is 3 or more
+        long wrap = (t + 1) >>> 2;
+        t -= (wrap << 1) + wrap;
+        return slot & 7 | t << 3;
+    }
+
+    static void moveEdges(int m, long[] in, long[] out, int start, int n) {
+        int k = m * 4;
+        long keep = Moves.EDGE_KEEP[m];
+        int s0 = EDGE_SRC[k], s1 = EDGE_SRC[k + 1], s2 = EDGE_SRC[k + 2], s3 = EDGE_SRC[k + 3];
+        int d0 = EDGE_DST[k], d1 = EDGE_DST[k + 1], d2 = EDGE_DST[k + 2], d3 = EDGE_DST[k + 3];
+        long f0 = EDGE_FLIP[k], f1 = EDGE_FLIP[k + 1], f2 = EDGE_FLIP[k + 2], f3 = EDGE_FLIP[k + 3];
+        for (int i = start; i < n; i++) {
+            long e = in[i];
+            out[i] = (e & keep)
+                | ((e >>> s0 & 31) ^ f0) << d0
+                | ((e >>> s1 & 31) ^ f1) << d1
+                | ((e >>> s2 & 31) ^ f2) << d2
+                | ((e >>> s3 & 31) ^ f3) << d3;
+        }
+    }
+}
@@ -0,0 +1,406 @@
+package rubikscube;
+
+/**
+ * Cubie-level state of the cube.
+ *
+ * The 8 corners and 12 edges are each described by which cubie sits in a slot
+ * and how it is twisted/flipped there. Everything is packed into two longs,
+ * 5 bits per slot:
+ *   corners: bits 0-2 cubie, bits 3-4 twist (0..2)
+ *   edges:   bits 0-3 cubie, bit 4 flip (0..1)
+ * so a state can be copied, compared and hashed without touching the heap.
+ *
+ * Slot/cubie numbering and facelet numbering follow the usual Kociemba
+ * conventions; see RubiksCube for how the facelets map onto the 9-line net.
+ */
+public class CubieCube {
+
+    // Faces, in facelet order
+    public static final int U = 0, R = 1, F = 2, D = 3, L = 4, B = 5;
+
+    // Corner slots
+    static final int URF = 0, UFL = 1, ULB = 2, UBR = 3, DFR = 4, DLF = 5, DBL = 6, DRB = 7;
+
+    // Edge slots
+    static final int UR = 0, UF = 1, UL = 2, UB = 3, DR = 4, DF = 5, DL = 6, DB = 7,
+                     FR = 8, FL = 9, BL = 10, BR = 11;
+
+    /** Packed corners/edges of the solved cube: every cubie at home, no twist or flip. */
+    public static final long SOLVED_CORNERS = packIdentity(8);
+    public static final long SOLVED_EDGES = packIdentity(12);
+
+    /**
+     * Facelet indices (face * 9 + position) of each corner slot,
+     * starting with the U/D sticker and going clockwise.
+     */
+    static final int[][] CORNER_FACELETS = {
+        {8, 9, 20}, {6, 18, 38}, {0, 36, 47}, {2, 45, 11},
+        {29, 26, 15}, {27, 44, 24}, {33, 53, 42}, {35, 17, 51}
+    };
+
+    /** Facelet indices of each edge slot; the first sticker is the reference for flip. */
+    static final int[][] EDGE_FACELETS = {
+        {5, 10}, {7, 19}, {3, 37}, {1, 46}, {32, 16}, {28, 25},
+        {30, 43}, {34, 52}, {23, 12}, {21, 41}, {50, 39}, {48, 14}
+    };
+
+    /** Faces each corner cubie shows, in the same order as CORNER_FACELETS. */
+    static final int[][] CORNER_COLORS = {
+        {U, R, F}, {U, F, L}, {U, L, B}, {U, B, R},
+        {D, F, R}, {D, L, F}, {D, B, L}, {D, R, B}
+    };
+
+    /** Faces each edge cubie shows, in the same order as EDGE_FACELETS. */
+    static final int[][] EDGE_COLORS = {
+        {U, R}, {U, F}, {U, L}, {U, B}, {D, R}, {D, F},
+        {D, L}, {D, B}, {F, R}, {F, L}, {B, L}, {B, R}
+    };
+
+    // Clockwise quarter turn of each face: slot i receives the cubie from
+    // slot MOVE_CP[face][i], twisted by MOVE_CO[face][i] (edges likewise).
+    static final int[][] MOVE_CP = {
+        {UBR, URF, UFL, ULB, DFR, DLF, DBL, DRB},   // U
+        {DFR, UFL, ULB, URF, DRB, DLF, DBL, UBR},   // R
+        {UFL, DLF, ULB, UBR, URF, DFR, DBL, DRB},   // F
+        {URF, UFL, ULB, UBR, DLF, DBL, DRB, DFR},   // D
+        {URF, ULB, DBL, UBR, DFR, UFL, DLF, DRB},   // L
+        {URF, UFL, UBR, DRB, DFR, DLF, ULB, DBL}    // B
+    };
+
+    static final int[][] MOVE_CO = {
+        {0, 0, 0, 0, 0, 0, 0, 0},
+        {2, 0, 0, 1, 1, 0, 0, 2},
+        {1, 2, 0, 0, 2, 1, 0, 0},
+        {0, 0, 0, 0, 0, 0, 0, 0},
+        {0, 1, 2, 0, 0, 2, 1, 0},
+        {0, 0, 1, 2, 0, 0, 2, 1}
+    };
+
+    static final int[][] MOVE_EP = {
+        {UB, UR, UF, UL, DR, DF, DL, DB, FR, FL, BL, BR},
+        {FR, UF, UL, UB, BR, DF, DL, DB, DR, FL, BL, UR},
+        {UR, FL, UL, UB, DR, FR, DL, DB, UF, DF, BL, BR},
+        {UR, UF, UL, UB, DF, DL, DB, DR, FR, FL, BL, BR},
+        {UR, UF, BL, UB, DR, DF, FL, DB, FR, UL, DL, BR},
+        {UR, UF, UL, BR, DR, DF, DL, BL, FR, FL, UB, DB}
+    };
+
+    static final int[][] MOVE_EO = {
+        {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0},
+        {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0},
+        {0, 1, 0, 0, 0, 1, 0, 0, 1, 1, 0, 0},
+        {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0},
+        {0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0},
+        {0, 0, 0, 1, 0, 0, 0, 1, 0, 0, 1, 1}
+    };
+
+    long corners;
+    long edges;
+
+    /**
+     * Creates a solved cube
+     */
+    public CubieCube() {
+        corners = SOLVED_CORNERS;
+        edges = SOLVED_EDGES;
+    }
+
+    /**
+     * @param corners packed corners
+     * @param edges packed edges
+     * Creates a cube from its packed representation
+     */
+    public CubieCube(long corners, long edges) {
+        this.corners = corners;
+        this.edges = edges;
+    }
+
+    /**
+     * @param corners packed corners
+     * @param edges packed edges
+     * Overwrites this cube with a packed state, without allocating
+     */
+    public void set(long corners, long edges) {
+        this.corners = corners;
+        this.edges = edges;
+    }
+
+    /**
+     * @param other the cube to copy into this one
+     */
+    public void copyFrom(CubieCube other) {
+        corners = other.corners;
+        edges = other.edges;
+    }
+
+    public long getCorners() {
+        return corners;
+    }
+
+    public long getEdges() {
+        return edges;
+    }
+
+    /** @return the cubie sitting in corner slot i */
+    public int cornerAt(int i) {
+        return (int) (corners >>> (5 * i)) & 7;
+    }
+
+    /** @return the twist (0..2) of the cubie in corner slot i */
+    public int twistAt(int i) {
+        return (int) (corners >>> (5 * i + 3)) & 3;
+    }
+
+    /** @return the cubie sitting in edge slot i */
+    public int edgeAt(int i) {
+        return (int) (edges >>> (5 * i)) & 15;
+    }
+
+    /** @return the flip (0..1) of the cubie in edge slot i */
+    public int flipAt(int i) {
+        return (int) (edges >>> (5 * i + 4)) & 1;
+    }
+
+    public boolean isSolved() {
+        return corners == SOLVED_CORNERS && edges == SOLVED_EDGES;
+    }
+
+    /**
+     * @param face one of U, R, F, D, L, B
+     * Applies a clockwise quarter turn of the given face
+     */
+    public void turn(int face) {
+        int[] cp = MOVE_CP[face];
+        int[] co = MOVE_CO[face];
+        long c = corners;
+        long nc = 0;
+        for (int i = 0; i < 8; i++) {
+            int slot = (int) (c >>> (5 * cp[i])) & 31;
+            int twist = ((slot >>> 3) + co[i]) % 3;
+            nc |= (long) ((slot & 7) | twist << 3) << (5 * i);
+        }
+
+        int[] ep = MOVE_EP[face];
+        int[] eo = MOVE_EO[face];
+        long e = edges;
+        long ne = 0;
+        for (int i = 0; i < 12; i++) {
+            int slot = (int) (e >>> (5 * ep[i])) & 31;
+            ne |= (long) (slot ^ eo[i] << 4) << (5 * i);
+        }
+
+        corners = nc;
+        edges = ne;
+    }
+
+    /**
+     * @param m a move, see Moves
+     * Applies move m using the precomputed move tables
+     */
+    public void move(int m) {
+        Moves.apply(this, m);
+    }
+
+    /**
+     * @param facelets 54 face indices (U, R, F, D, L, B), one per sticker
+     * @return the cube whose stickers are facelets
+     * @throws IncorrectFormatException if some corner or edge does not exist on a real cube
+     */
+    public static CubieCube fromFacelets(int[] facelets) throws IncorrectFormatException {
+        long c = 0;
+        for (int i = 0; i < 8; i++) {
+            int[] fl = CORNER_FACELETS[i];
+
+            // the U/D sticker tells us the twist
+            int twist = 0;
+            while (twist < 3 && facelets[fl[twist]] != U && facelets[fl[twist]] != D) {
+                twist++;
+            }
+            if (twist == 3) {
+                throw new IncorrectFormatException("Corner " + i + " has no U or D sticker");
+            }
+
+            int col1 = facelets[fl[(twist + 1) % 3]];
+            int col2 = facelets[fl[(twist + 2) % 3]];
+            int cubie = -1;
+            for (int j = 0; j < 8; j++) {
+                if (CORNER_COLORS[j][0] == facelets[fl[twist]]
+                        && CORNER_COLORS[j][1] == col1 && CORNER_COLORS[j][2] == col2) {
+                    cubie = j;
+                    break;
+                }
+            }
+            if (cubie < 0) {
+                throw new IncorrectFormatException("Corner " + i + " is not a valid corner");
+            }
+            c |= (long) (cubie | twist << 3) << (5 * i);
+        }
+
+        long e = 0;
+        for (int i = 0; i < 12; i++) {
+            int a = facelets[EDGE_FACELETS[i][0]];
+            int b = facelets[EDGE_FACELETS[i][1]];
+            int slot = -1;
+            for (int j = 0; j < 12; j++) {
+                if (EDGE_COLORS[j][0] == a && EDGE_COLORS[j][1] == b) {
+                    slot = j;
+                    break;
+                }
+                if (EDGE_COLORS[j][0] == b && EDGE_COLORS[j][1] == a) {
+                    slot = j | 16;
+                    break;
+                }
+            }
+            if (slot < 0) {
+                throw new IncorrectFormatException("Edge " + i + " is not a valid edge");
+            }
+            e |= (long) slot << (5 * i);
+        }
+
+        return new CubieCube(c, e);
+    }
+
+    /**
+     * @return the smallest n > 0 such that doing whatever led from solved
+     * to this state n times leads back to solved: the LCM over the cycles
+     * of its corners and edges of each cycle's length, times 3 for a
+     * corner cycle whose twists do not cancel, or 2 for an edge cycle with
+     * an odd number of flips
+     */
+    public int order() {
+        long order = 1;
+        int done = 0;
+        for (int i = 0; i < 8; i++) {
+            if ((done >> i & 1) != 0) continue;
+            int length = 0;
+            int twist = 0;
+            for (int j = i; (done >> j & 1) == 0; j = cornerAt(j)) {
+                done |= 1 << j;
+                twist += twistAt(j);
+                length++;
+            }
+            order = lcm(order, twist % 3 == 0 ? length : 3 * length);
+        }
+        done = 0;
+        for (int i = 0; i < 12; i++) {
+            if ((done >> i & 1) != 0) continue;
+            int length = 0;
+            int flips = 0;
+            for (int j = i; (done >> j & 1) == 0; j = edgeAt(j)) {
+                done |= 1 << j;
+                flips += flipAt(j);
+                length++;
+            }
+            order = lcm(order, flips % 2 == 0 ? length : 2 * length);
+        }
+        return (int) order;
+    }
+
+    /**
+     * @throws IncorrectFormatException unless this state can be reached from
+     * solved: every cubie exactly once, twists summing to a multiple of 3,
+     * an even number of flipped edges, and corner and edge permutations of
+     * the same parity. Constant time, so cheap to run before any search.
+     */
+    public void verify() throws IncorrectFormatException {
+        int seen = 0;
+        int twist = 0;
+        for (int i = 0; i < 8; i++) {
+            seen |= 1 << cornerAt(i);
+            twist += twistAt(i);
+        }
+        if (seen != 0xFF) {
+            throw new IncorrectFormatException("Some corner appears twice");
+        }
+        if (twist % 3 != 0) {
+            throw new IncorrectFormatException("A corner is twisted");
+        }
+        seen = 0;
+        int flips = 0;
+        for (int i = 0; i < 12; i++) {
+            seen |= 1 << edgeAt(i);
+            flips += flipAt(i);
+        }
+        if (seen != 0xFFF) {
+            throw new IncorrectFormatException("Some edge appears twice");
+        }
+        if (flips % 2 != 0) {
+            throw new IncorrectFormatException("An edge is flipped");
+        }
+        if (parity(corners, 8, 7) != parity(edges, 12, 15)) {
+            throw new IncorrectFormatException("Two pieces are swapped");
+        }
+    }
+
+    /**
+     * @param facelets destination for the 54 face indices, overwritten except for centres
+     * Writes the stickers of this cube into facelets
+     */
+    public void toFacelets(int[] facelets) {
+        for (int f = 0; f < 6; f++) {
+            facelets[f * 9 + 4] = f;
+        }
+        for (int i = 0; i < 8; i++) {
+            int cubie = cornerAt(i);
+            int twist = twistAt(i);
+            for (int n = 0; n < 3; n++) {
+                facelets[CORNER_FACELETS[i][(n + twist) % 3]] = CORNER_COLORS[cubie][n];
+            }
+        }
+        for (int i = 0; i < 12; i++) {
+            int cubie = edgeAt(i);
+            int flip = flipAt(i);
+            for (int n = 0; n < 2; n++) {
+                facelets[EDGE_FACELETS[i][(n + flip) % 2]] = EDGE_COLORS[cubie][n];
+            }
+        }
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (!(o instanceof CubieCube)) return false;
+        CubieCube other = (CubieCube) o;
+        return corners == other.corners && edges == other.edges;
+    }
+
+    @Override
+    public int hashCode() {
+        return Long.hashCode(corners * 31 + edges);
+    }
+
+    // === HELPER FUNCTIONS ===
+
+    private static long lcm(long a, long b) {
+        long x = a;
+        long y = b;
+        while (y != 0) {
+            long t = x % y;
+            x = y;
+            y = t;
+        }
+        return a / x * b;
+    }
+
+    // 0 for an even permutation of the n packed cubies, 1 for an odd one
+    private static int parity(long packed, int n, int mask) {
+        int parity = 0;
+        for (int i = 0; i < n; i++) {
+            int a = (int) (packed >>> (5 * i)) & mask;
+            for (int j = i + 1; j < n; j++) {
+                if (a > ((int) (packed >>> (5 * j)) & mask)) {
+                    parity ^= 1;
+                }
+            }
+        }
+        return parity;
+    }
+
+    // n slots, slot i holding cubie i with no twist/flip
+    private static long packIdentity(int n) {
+        long packed = 0;
+        for (int i = 0; i < n; i++) {
+            packed |= (long) i << (5 * i);
+        }
+        return packed;
+    }
+}
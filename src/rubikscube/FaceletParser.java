@@ -0,0 +1,206 @@
+package rubikscube;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+
+/**
+ * Reads cubes in the 9-line net format of the scramble files, from memory
+ * or from files holding any number of nets.
+ *
+ * Lines are scanned in place, without splitting them into Strings, and
+ * every net is checked before a cube is returned: line lengths, six
+ * distinct centres, nine stickers of each colour, real corners and edges,
+ * and CubieCube.verify(), so an unsolvable state (a twisted corner, a
+ * flipped edge, two swapped pieces) is rejected at once instead of being
+ * searched until the timeout.
+ *
+ * In a multi-cube file, nets follow each other, optionally separated by
+ * blank lines. next() reads them one at a time from a ByteBuffer, e.g. the
+ * memory-mapped file map() returns.
+ */
+public final class FaceletParser {
+
+    private static final int[] LINE_LENGTH = {6, 6, 6, 12, 12, 12, 6, 6, 6};
+    // FACELET_AT[line * 12 + column]: the facelet shown there, -1 for the indent
+    private static final byte[] FACELET_AT = new byte[9 * 12];
+
+    static {
+        Arrays.fill(FACELET_AT, (byte) -1);
+        for (int i = 0; i < 54; i++) {
+            FACELET_AT[RubiksCube.NET_ROW[i] * 12 + RubiksCube.NET_COL[i]] = (byte) i;
+        }
+    }
+
+    private FaceletParser() {
+    }
+
+    /**
+     * @param net exactly one net, with or without a final newline
+     * @return the cube it describes
+     */
+    public static RubiksCube parse(CharSequence net) throws IncorrectFormatException {
+        byte[] bytes = new byte[net.length()];
+        for (int i = 0; i < bytes.length; i++) {
+            char c = net.charAt(i);
+            bytes[i] = c < 128 ? (byte) c : (byte) '?';
+        }
+        return parse(bytes);
+    }
+
+    /**
+     * @param net exactly one net in ASCII, with or without a final newline
+     * @return the cube it describes
+     */
+    public static RubiksCube parse(byte[] net) throws IncorrectFormatException {
+        return parse(ByteBuffer.wrap(net));
+    }
+
+    /**
+     * @param net exactly one net from its position to its limit, with or
+     * without a final newline; the position is left at the end
+     * @return the cube it describes
+     */
+    public static RubiksCube parse(ByteBuffer net) throws IncorrectFormatException {
+        RubiksCube cube = readNet(net);
+        if (!skipBlankLines(net)) {
+            throw new IncorrectFormatException("Net has more than 9 lines");
+        }
+        return cube;
+    }
+
+    /**
+     * @param file a scramble file holding exactly one net
+     * @return the cube it describes
+     */
+    public static RubiksCube parse(Path file) throws IOException, IncorrectFormatException {
+        return parse(Files.readAllBytes(file));
+    }
+
+    /**
+     * @param file a file of nets, see the class comment; under 2 GB
+     * @return the file mapped read-only, to read with next()
+     */
+    public static ByteBuffer map(Path file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            return channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+        }
+    }
+
+    /**
+     * Reads the net at in's position, after any blank lines. If it is not a
+     * valid cube, the rest of that net is skipped before the exception is
+     * thrown, so the caller can carry on with the next one.
+     * @return the cube, or null when only blank lines were left
+     */
+    public static RubiksCube next(ByteBuffer in) throws IncorrectFormatException {
+        if (skipBlankLines(in)) {
+            return null;
+        }
+        try {
+            return readNet(in);
+        } catch (IncorrectFormatException e) {
+            // up to the blank line that ends this net, or the end
+            while (in.hasRemaining() && !blankLine(in, in.position())) {
+                skipLine(in);
+            }
+            throw e;
+        }
+    }
+
+    // === HELPER FUNCTIONS ===
+
+    // 9 lines from in's position, leaving it after the last one
+    private static RubiksCube readNet(ByteBuffer in) throws IncorrectFormatException {
+        byte[] stickers = new byte[54];
+        for (int line = 0; line < 9; line++) {
+            if (!in.hasRemaining()) {
+                throw new IncorrectFormatException("Net ended before 9 lines");
+            }
+            int start = in.position();
+            int end = skipLine(in);
+            int length = end - start;
+            if (length != LINE_LENGTH[line]) {
+                throw new IncorrectFormatException("Line " + (line + 1) + " should have "
+                    + LINE_LENGTH[line] + " characters, not " + length);
+            }
+            for (int col = length == 6 ? 3 : 0; col < length; col++) {
+                stickers[FACELET_AT[line * 12 + col]] = in.get(start + col);
+            }
+        }
+        return fromStickers(stickers);
+    }
+
+    // The cube showing these 54 sticker colours
+    private static RubiksCube fromStickers(byte[] stickers) throws IncorrectFormatException {
+        // Centres never move, so they fix which colour belongs to which face
+        char[] centres = new char[6];
+        for (int f = 0; f < 6; f++) {
+            centres[f] = (char) stickers[f * 9 + 4];
+            for (int g = 0; g < f; g++) {
+                if (centres[g] == centres[f]) {
+                    throw new IncorrectFormatException("Two faces have centre colour " + centres[f]);
+                }
+            }
+        }
+
+        int[] facelets = new int[54];
+        int[] count = new int[6];
+        for (int i = 0; i < 54; i++) {
+            char c = (char) stickers[i];
+            int face = 0;
+            while (face < 6 && centres[face] != c) {
+                face++;
+            }
+            if (face == 6) {
+                throw new IncorrectFormatException("Unknown colour " + c + " on line " + (RubiksCube.NET_ROW[i] + 1));
+            }
+            facelets[i] = face;
+            count[face]++;
+        }
+        for (int f = 0; f < 6; f++) {
+            if (count[f] != 9) {
+                throw new IncorrectFormatException("Colour " + centres[f] + " appears " + count[f] + " times, not 9");
+            }
+        }
+
+        CubieCube cube = CubieCube.fromFacelets(facelets);
+        cube.verify();
+        return new RubiksCube(cube, centres);
+    }
+
+    // Moves in past the next newline; returns the end of the line, before any '\r'
+    private static int skipLine(ByteBuffer in) {
+        int limit = in.limit();
+        int start = in.position();
+        int end = start;
+        while (end < limit && in.get(end) != '\n') {
+            end++;
+        }
+        in.position(end < limit ? end + 1 : end);
+        return end > start && in.get(end - 1) == '\r' ? end - 1 : end;
+    }
+
+    private static boolean blankLine(ByteBuffer in, int at) {
+        int limit = in.limit();
+        while (at < limit && in.get(at) != '\n') {
+            if (!Character.isWhitespace(in.get(at))) {
+                return false;
+            }
+            at++;
+        }
+        return true;
+    }
+
+    // Moves past blank lines; returns whether nothing else is left
+    private static boolean skipBlankLines(ByteBuffer in) {
+        while (in.hasRemaining() && blankLine(in, in.position())) {
+            skipLine(in);
+        }
+        return !in.hasRemaining();
+    }
+}
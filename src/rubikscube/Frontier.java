@@ -0,0 +1,21 @@
+package rubikscube;
+
+/**
+ * One level of a breadth-first search: a list of packed cube states.
+ */
+public interface Frontier {
+
+    void add(long c, long e);
+
+    long corners(int i);
+
+    long edges(int i);
+
+    int size();
+
+    /** Empties the list, keeping its memory for the next level. */
+    void clear();
+
+    /** @return bytes of memory held by the list */
+    long footprint();
+}
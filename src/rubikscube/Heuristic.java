@@ -0,0 +1,15 @@
+package rubikscube;
+
+/**
+ * Lower bound on the number of moves needed to solve a cube, used to prune
+ * IDA*. Implementations must be admissible (never overestimate) in the
+ * half-turn metric, which makes them admissible for quarter turns too.
+ */
+public interface Heuristic {
+
+    /**
+     * @param cube the state to estimate, not modified
+     * @return a lower bound on the moves left; 0 for the solved cube
+     */
+    int estimate(CubieCube cube);
+}
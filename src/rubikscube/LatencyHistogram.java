@@ -0,0 +1,106 @@
+package rubikscube;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Latency distribution in microseconds, in the manner of HdrHistogram:
+ * values below 128 get a bucket each, and every power of two above is
+ * split into 64 buckets, so any recorded value is known to within 1.6%
+ * in a fixed 18 KB however many are recorded. Thread-safe and lock-free.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BITS = 7;
+    private static final int SUB_COUNT = 1 << SUB_BITS;
+    private static final int HALF = SUB_COUNT / 2;
+    // up to 2^40 us, about 12 days
+    private static final int BUCKETS = SUB_COUNT + (40 - SUB_BITS) * HALF;
+
+    /** Percentiles toString() lists. */
+    private static final double[] LADDER = {50, 75, 90, 95, 99, 99.9, 99.99, 100};
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final AtomicLong total = new AtomicLong();
+    private final AtomicLong sum = new AtomicLong();
+    private final AtomicLong max = new AtomicLong();
+
+    /**
+     * @param micros a latency; negative values count as 0
+     */
+    public void record(long micros) {
+        long v = Math.max(0, micros);
+        counts.incrementAndGet(Math.min(index(v), BUCKETS - 1));
+        total.incrementAndGet();
+        sum.addAndGet(v);
+        max.accumulateAndGet(v, Math::max);
+    }
+
+    public long getCount() {
+        return total.get();
+    }
+
+    /** @return the largest value recorded, exactly */
+    public long getMax() {
+        return max.get();
+    }
+
+    public double getMean() {
+        long n = total.get();
+        return n == 0 ? 0 : (double) sum.get() / n;
+    }
+
+    /**
+     * @param percentile 0 to 100
+     * @return a value no more than 1.6% above the one at that percentile,
+     * and never above getMax(); 0 before anything is recorded
+     */
+    public long getValueAtPercentile(double percentile) {
+        long n = total.get();
+        if (n == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * n));
+        long seen = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            seen += counts.get(i);
+            if (seen >= rank) {
+                return Math.min(highestInBucket(i), max.get());
+            }
+        }
+        return max.get();
+    }
+
+    /** @return a percentile ladder in milliseconds, one percentile per line */
+    @Override
+    public String toString() {
+        StringBuilder sb = new StringBuilder(String.format(Locale.ROOT, "%10s %12s%n", "percentile", "ms"));
+        for (double p : LADDER) {
+            sb.append(String.format(Locale.ROOT, "%10s %12.3f%n", p == (long) p ? String.valueOf((long) p) : String.valueOf(p),
+                getValueAtPercentile(p) / 1000.0));
+        }
+        return sb.append(String.format(Locale.ROOT, "%10s %12.3f (%d values)", "mean", getMean() / 1000, getCount())).toString();
+    }
+
+    // === HELPER FUNCTIONS ===
+
+    private static int index(long v) {
+        if (v < SUB_COUNT) {
+            return (int) v;
+        }
+        // keep the top SUB_BITS bits: a mantissa in [64, 128) and a shift
+        int shift = 64 - Long.numberOfLeadingZeros(v) - SUB_BITS;
+        int mantissa = (int) (v >>> shift);
+        return SUB_COUNT + (shift - 1) * HALF + mantissa - HALF;
+    }
+
+    private static long highestInBucket(int index) {
+        if (index < SUB_COUNT) {
+            return index;
+        }
+        int shift = (index - SUB_COUNT) / HALF + 1;
+        long mantissa = (index - SUB_COUNT) % HALF + HALF;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
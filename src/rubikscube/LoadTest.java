@@ -0,0 +1,175 @@
+package rubikscube;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Drives Solver.solve over many scrambles at a fixed concurrency and
+ * reports throughput, the latency distribution and the success rate
+ * against the solver's timeout.
+ *
+ * Scrambles come from a ScrambleGenerator (random walks of a given depth,
+ * or uniformly random states) or a file it wrote. Every solution is
+ * applied with applyMoves to a fresh copy of its scramble and counted as
+ * solved only if isSolved() holds after it.
+ */
+public class LoadTest {
+
+    private final Solver solver = new Solver();
+    private final Solver.Strategy strategy;
+    private final int concurrency;
+
+    /**
+     * @param strategy strategy of every solve
+     * @param concurrency solves running at once
+     */
+    public LoadTest(Solver.Strategy strategy, int concurrency) {
+        if (concurrency < 1) {
+            throw new IllegalArgumentException("concurrency must be at least 1");
+        }
+        this.strategy = strategy;
+        this.concurrency = concurrency;
+        if (concurrency > 1) {
+            // the pool already keeps every core busy with other scrambles
+            solver.setParallelism(1);
+        }
+    }
+
+    /**
+     * Usage: LoadTest depth|random-state|file [strategy] [concurrency] [count] [seed]
+     * The solve timeout is the solver's, -Drubikscube.timeout.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length < 1 || args.length > 5) {
+            System.err.println("usage: LoadTest <depth|random-state|file> [strategy] [concurrency] [count] [seed]");
+            System.exit(1);
+        }
+        Solver.Strategy strategy = args.length > 1 ? Solver.Strategy.parse(args[1]) : Solver.Strategy.TWO_PHASE;
+        int concurrency = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int count = args.length > 3 ? Integer.parseInt(args[3]) : 1000;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+
+        List<CubieCube> scrambles;
+        String source;
+        Path file = Paths.get(args[0]);
+        if (Files.isRegularFile(file)) {
+            scrambles = ScrambleGenerator.read(file);
+            source = file.toString();
+        } else {
+            int depth = ScrambleGenerator.parseDepth(args[0]);
+            scrambles = new ScrambleGenerator(seed).generate(count, depth);
+            source = (depth < 0 ? "random-state" : depth + "-move") + ", seed " + seed;
+        }
+
+        System.out.println(scrambles.size() + " scrambles (" + source + "), " + strategy + " on "
+            + concurrency + " threads");
+        System.out.println(new LoadTest(strategy, concurrency).run(scrambles));
+    }
+
+    /**
+     * Solves every scramble, after loading the strategy's tables
+     * @return counts, throughput and latencies of the run
+     */
+    public Report run(List<CubieCube> scrambles) throws InterruptedException {
+        solver.warmUp(strategy);
+        Report report = new Report(solver.getTimeout());
+        ExecutorService pool = Executors.newFixedThreadPool(concurrency);
+        long start = System.nanoTime();
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (CubieCube scramble : scrambles) {
+                futures.add(pool.submit(() -> solveOne(scramble, report)));
+            }
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        } catch (ExecutionException e) {
+            // solveOne records its own failures
+            throw new IllegalStateException(e.getCause());
+        } finally {
+            pool.shutdownNow();
+        }
+        report.millis = (System.nanoTime() - start) / 1_000_000;
+        return report;
+    }
+
+    private void solveOne(CubieCube scramble, Report report) {
+        RubiksCube cube = new RubiksCube();
+        cube.restore(scramble);
+        long start = System.nanoTime();
+        try {
+            String solution = solver.solve(cube, strategy);
+            report.latencies.record((System.nanoTime() - start) / 1000);
+            if (solution == null) {
+                (solver.getMetrics().isTimedOut() ? report.timedOut : report.unsolved).incrementAndGet();
+                return;
+            }
+            RubiksCube check = new RubiksCube();
+            check.restore(scramble);
+            check.applyMoves(solution);
+            (check.isSolved() ? report.solved : report.wrong).incrementAndGet();
+        } catch (RuntimeException | Error e) {
+            // an OutOfMemoryError from one solve is that solve's error, not the run's
+            report.latencies.record((System.nanoTime() - start) / 1000);
+            report.errors.incrementAndGet();
+        }
+    }
+
+    /** Outcome counts, throughput and latency distribution of one run. */
+    public static class Report {
+        private final long timeoutMillis;
+        private final LatencyHistogram latencies = new LatencyHistogram();
+        private final AtomicInteger solved = new AtomicInteger();
+        private final AtomicInteger timedOut = new AtomicInteger();
+        private final AtomicInteger unsolved = new AtomicInteger();
+        private final AtomicInteger wrong = new AtomicInteger();
+        private final AtomicInteger errors = new AtomicInteger();
+        private long millis;
+
+        Report(long timeoutMillis) {
+            this.timeoutMillis = timeoutMillis;
+        }
+
+        /** @return latency of every solve, failed ones included, in microseconds */
+        public LatencyHistogram getLatencies() {
+            return latencies;
+        }
+
+        public int getSolved() {
+            return solved.get();
+        }
+
+        /** @return solutions that did not solve their scramble; should be 0 */
+        public int getWrong() {
+            return wrong.get();
+        }
+
+        /** @return solved scrambles as a fraction of all of them */
+        public double getSuccessRate() {
+            long total = latencies.getCount();
+            return total == 0 ? 0 : (double) solved.get() / total;
+        }
+
+        /** @return solves finished per second of wall time, not counting table warm-up */
+        public double getThroughput() {
+            return latencies.getCount() * 1000.0 / Math.max(millis, 1);
+        }
+
+        @Override
+        public String toString() {
+            return String.format(Locale.ROOT, "%.1f solves/sec over %d ms; %.2f%% solved within %d ms:"
+                + " %d solved, %d timed out, %d unsolved, %d wrong, %d errors%n%s",
+                getThroughput(), millis, 100 * getSuccessRate(), timeoutMillis, solved.get(), timedOut.get(),
+                unsolved.get(), wrong.get(), errors.get(), latencies);
+        }
+    }
+}
@@ -0,0 +1,14 @@
+package rubikscube;
+
+/**
+ * Applies one move to a run of packed states, for CubeBatch. CubeBatch.SCALAR
+ * is a plain loop; the benchmarks module adds one on the Vector API.
+ */
+public interface MoveKernel {
+
+    /**
+     * Writes to outCorners and outEdges [0, n) the states of corners and
+     * edges [0, n) with move m applied; the outputs may be the inputs
+     */
+    void move(int m, long[] corners, long[] edges, long[] outCorners, long[] outEdges, int n);
+}
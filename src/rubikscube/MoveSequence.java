@@ -0,0 +1,100 @@
+package rubikscube;
+
+import java.util.Arrays;
+
+/**
+ * Canonical move sequences, and simplifying the ones the searches return.
+ *
+ * Turns of one face in a row are one turn (or none), and turns of opposite
+ * faces commute, so U D and D U are the same. A search that only extends
+ * a sequence with moves that are not redundant() after its last move
+ * visits each such group once: about 13.3 children per node instead of
+ * 18, or 15 with the same-face rule alone.
+ *
+ * The bidirectional searches work in clockwise quarter turns and glue a
+ * forward path to an inverted backward one, so their solutions can hold
+ * runs like "RRRR" or "UDU"; simplify() merges those.
+ */
+public final class MoveSequence {
+
+    private MoveSequence() {
+    }
+
+    /**
+     * @return whether move m after move last would make a non-canonical
+     * sequence: same face twice, or opposite faces in the non-canonical
+     * order (D U instead of U D)
+     */
+    public static boolean redundant(int last, int m) {
+        int lastFace = Moves.face(last);
+        int face = Moves.face(m);
+        return lastFace == face || lastFace == face + 3;
+    }
+
+    /**
+     * @param quarterTurns moves in the notation of solution files, e.g. "RUUU"
+     * @return one clockwise quarter turn per face letter; other characters are skipped
+     */
+    public static int[] parse(String quarterTurns) {
+        int[] moves = new int[quarterTurns.length()];
+        int n = 0;
+        for (int i = 0; i < quarterTurns.length(); i++) {
+            int m = Moves.quarterTurn(quarterTurns.charAt(i));
+            if (m >= 0) {
+                moves[n++] = m;
+            }
+        }
+        return Arrays.copyOf(moves, n);
+    }
+
+    /**
+     * @param moves a move sequence, see Moves
+     * @return an equivalent canonical sequence: turns of the same face merged
+     * (dropped if they cancel), also across turns of the opposite face, and
+     * opposite faces in canonical order
+     */
+    public static int[] simplify(int[] moves) {
+        // A stack of axis groups: consecutive turns about one axis, as quarter
+        // turns of its two faces. Neighbouring groups are about different axes.
+        int[] axes = new int[moves.length];
+        int[] turns = new int[moves.length * 2];
+        int n = 0;
+        for (int m : moves) {
+            int face = Moves.face(m);
+            int axis = face % 3;
+            if (n == 0 || axes[n - 1] != axis) {
+                axes[n] = axis;
+                turns[2 * n] = 0;
+                turns[2 * n + 1] = 0;
+                n++;
+            }
+            int side = 2 * (n - 1) + face / 3;
+            turns[side] = (turns[side] + Moves.power(m)) % 4;
+            if (turns[2 * (n - 1)] == 0 && turns[2 * (n - 1) + 1] == 0) {
+                // cancelled out; the next move may merge with the group before
+                n--;
+            }
+        }
+
+        int[] result = new int[moves.length];
+        int length = 0;
+        for (int i = 0; i < n; i++) {
+            for (int side = 0; side < 2; side++) {
+                int t = turns[2 * i + side];
+                if (t != 0) {
+                    result[length++] = (axes[i] + 3 * side) * 3 + t - 1;
+                }
+            }
+        }
+        return Arrays.copyOf(result, length);
+    }
+
+    /**
+     * @param solution moves in quarter-turn notation
+     * @return the same solution simplified, in quarter-turn notation
+     */
+    public static String optimize(String solution) {
+        int[] moves = simplify(parse(solution));
+        return Moves.toString(moves, moves.length);
+    }
+}
@@ -0,0 +1,178 @@
+package rubikscube;
+
+/**
+ * The 18 face turns and their precomputed move tables.
+ *
+ * A move is an int: face * 3 + (power - 1), faces in U, R, F, D, L, B order and
+ * power 1 = clockwise quarter turn, 2 = half turn, 3 = anticlockwise quarter turn.
+ * So U = 0, U2 = 1, U' = 2, R = 3, ... B' = 17.
+ *
+ * Every turn moves exactly 4 corner slots and 4 edge slots. For each move we
+ * store, per moved slot, where its cubie comes from and a 32-entry table that
+ * maps the old 5-bit slot value to the new one (cubie kept, twist/flip added).
+ * Applying a move is then a handful of shifts and lookups on the two packed
+ * longs of a CubieCube, with no allocation.
+ */
+public final class Moves {
+
+    public static final int COUNT = 18;
+
+    static final String FACE_NAMES = "URFDLB";
+
+    // Per move, 4 entries each: destination shift, source shift, transform offset
+    static final int[] CORNER_DST = new int[COUNT * 4];
+    static final int[] CORNER_SRC = new int[COUNT * 4];
+    static final byte[] CORNER_XFORM = new byte[COUNT * 4 * 32];
+    static final long[] CORNER_KEEP = new long[COUNT];
+
+    static final int[] EDGE_DST = new int[COUNT * 4];
+    static final int[] EDGE_SRC = new int[COUNT * 4];
+    static final int[] EDGE_FLIP = new int[COUNT * 4];
+    static final long[] EDGE_KEEP = new long[COUNT];
+
+    static {
+        for (int m = 0; m < COUNT; m++) {
+            // Where every slot's cubie comes from: apply the turn to a solved cube
+            CubieCube moved = new CubieCube();
+            for (int p = 0; p <= m % 3; p++) {
+                moved.turn(m / 3);
+            }
+
+            long keep = -1L;
+            int k = m * 4;
+            for (int i = 0; i < 8; i++) {
+                int src = moved.cornerAt(i);
+                int twist = moved.twistAt(i);
+                if (src == i && twist == 0) continue;
+                keep &= ~(31L << (5 * i));
+                CORNER_DST[k] = 5 * i;
+                CORNER_SRC[k] = 5 * src;
+                for (int v = 0; v < 32; v++) {
+                    int t = ((v >>> 3) + twist) % 3;
+                    CORNER_XFORM[k * 32 + v] = (byte) ((v & 7) | t << 3);
+                }
+                k++;
+            }
+            CORNER_KEEP[m] = keep;
+
+            keep = -1L;
+            k = m * 4;
+            for (int i = 0; i < 12; i++) {
+                int src = moved.edgeAt(i);
+                int flip = moved.flipAt(i);
+                if (src == i && flip == 0) continue;
+                keep &= ~(31L << (5 * i));
+                EDGE_DST[k] = 5 * i;
+                EDGE_SRC[k] = 5 * src;
+                EDGE_FLIP[k] = flip << 4;
+                k++;
+            }
+            EDGE_KEEP[m] = keep;
+        }
+    }
+
+    private Moves() {
+    }
+
+    /** @return the face (U, R, F, D, L, B) turned by move m */
+    public static int face(int m) {
+        return m / 3;
+    }
+
+    /** @return the number of clockwise quarter turns (1..3) move m stands for */
+    public static int power(int m) {
+        return m % 3 + 1;
+    }
+
+    /** @return the move undoing move m */
+    public static int inverse(int m) {
+        return m - m % 3 + (2 - m % 3);
+    }
+
+    /** @return the clockwise quarter turn of the face named c, or -1 */
+    public static int quarterTurn(char c) {
+        int face = FACE_NAMES.indexOf(c);
+        return face < 0 ? -1 : face * 3;
+    }
+
+    /** @return the slot the edge in slot s ends up in after move m */
+    static int edgeDestination(int m, int s) {
+        for (int k = m * 4; k < m * 4 + 4; k++) {
+            if (EDGE_SRC[k] == 5 * s) return EDGE_DST[k] / 5;
+        }
+        return s;
+    }
+
+    /** @return 1 if move m flips the edge in slot s, else 0 */
+    static int edgeFlipChange(int m, int s) {
+        for (int k = m * 4; k < m * 4 + 4; k++) {
+            if (EDGE_SRC[k] == 5 * s) return EDGE_FLIP[k] >>> 4;
+        }
+        return 0;
+    }
+
+    /**
+     * @param m a move
+     * @return m written with clockwise quarter turns only, e.g. U' is "UUU",
+     * which is the notation RubiksCube.applyMoves and the solution files use
+     */
+    public static String toString(int m) {
+        char c = FACE_NAMES.charAt(face(m));
+        switch (power(m)) {
+            case 1: return String.valueOf(c);
+            case 2: return "" + c + c;
+            default: return "" + c + c + c;
+        }
+    }
+
+    /**
+     * @param moves moves in the order they are applied
+     * @param length number of moves used
+     * @return the moves in quarter-turn notation
+     */
+    public static String toString(int[] moves, int length) {
+        StringBuilder sb = new StringBuilder();
+        for (int i = 0; i < length; i++) {
+            sb.append(toString(moves[i]));
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param moves moves in the order they are applied
+     * @return the moves in standard notation, e.g. "R U2 F'"
+     */
+    public static String toStandardString(int[] moves) {
+        StringBuilder sb = new StringBuilder();
+        for (int m : moves) {
+            if (sb.length() > 0) sb.append(' ');
+            sb.append(FACE_NAMES.charAt(face(m)));
+            if (power(m) == 2) sb.append('2');
+            if (power(m) == 3) sb.append('\'');
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @param cube the cube to turn
+     * @param m the move
+     * Applies move m to cube in place
+     */
+    static void apply(CubieCube cube, int m) {
+        int k = m * 4;
+
+        long c = cube.corners;
+        cube.corners = (c & CORNER_KEEP[m])
+            | (long) CORNER_XFORM[k * 32 + ((int) (c >>> CORNER_SRC[k]) & 31)] << CORNER_DST[k]
+            | (long) CORNER_XFORM[(k + 1) * 32 + ((int) (c >>> CORNER_SRC[k + 1]) & 31)] << CORNER_DST[k + 1]
+            | (long) CORNER_XFORM[(k + 2) * 32 + ((int) (c >>> CORNER_SRC[k + 2]) & 31)] << CORNER_DST[k + 2]
+            | (long) CORNER_XFORM[(k + 3) * 32 + ((int) (c >>> CORNER_SRC[k + 3]) & 31)] << CORNER_DST[k + 3];
+
+        long e = cube.edges;
+        cube.edges = (e & EDGE_KEEP[m])
+            | (((e >>> EDGE_SRC[k]) & 31) ^ EDGE_FLIP[k]) << EDGE_DST[k]
+            | (((e >>> EDGE_SRC[k + 1]) & 31) ^ EDGE_FLIP[k + 1]) << EDGE_DST[k + 1]
+            | (((e >>> EDGE_SRC[k + 2]) & 31) ^ EDGE_FLIP[k + 2]) << EDGE_DST[k + 2]
+            | (((e >>> EDGE_SRC[k + 3]) & 31) ^ EDGE_FLIP[k + 3]) << EDGE_DST[k + 3];
+    }
+}
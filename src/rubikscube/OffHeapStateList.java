@@ -0,0 +1,57 @@
+package rubikscube;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * StateList kept in direct ByteBuffers outside the Java heap. Grows a
+ * 16 MB buffer at a time and keeps its buffers across clear(), so a search
+ * reuses the same memory level after level.
+ */
+public class OffHeapStateList implements Frontier {
+
+    // States per buffer, 16 bytes each
+    private static final int CHUNK_BITS = 20;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    private final List<ByteBuffer> chunks = new ArrayList<>();
+    private int size;
+
+    @Override
+    public void add(long c, long e) {
+        int chunk = size >>> CHUNK_BITS;
+        if (chunk == chunks.size()) {
+            chunks.add(ByteBuffer.allocateDirect(16 << CHUNK_BITS).order(ByteOrder.nativeOrder()));
+        }
+        int offset = (size & CHUNK_MASK) * 16;
+        chunks.get(chunk).putLong(offset, c).putLong(offset + 8, e);
+        size++;
+    }
+
+    @Override
+    public long corners(int i) {
+        return chunks.get(i >>> CHUNK_BITS).getLong((i & CHUNK_MASK) * 16);
+    }
+
+    @Override
+    public long edges(int i) {
+        return chunks.get(i >>> CHUNK_BITS).getLong((i & CHUNK_MASK) * 16 + 8);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+    }
+
+    @Override
+    public long footprint() {
+        return (long) chunks.size() << (CHUNK_BITS + 4);
+    }
+}
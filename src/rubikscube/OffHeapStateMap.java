@@ -0,0 +1,127 @@
+package rubikscube;
+
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+
+/**
+ * StateMap with its slots in direct ByteBuffers outside the Java heap, so
+ * hundreds of millions of visited states cost the garbage collector nothing.
+ *
+ * The capacity is fixed up front: the table is sized for it at load factor
+ * 0.5 and never grows, so the whole footprint is known before the search
+ * starts. Direct memory is limited by -XX:MaxDirectMemorySize, which
+ * defaults to the max heap size.
+ *
+ * Not thread-safe.
+ */
+public class OffHeapStateMap implements VisitedStates {
+
+    /** Bytes used per slot. */
+    public static final int BYTES_PER_SLOT = 17;
+
+    /** Largest capacity supported, in states. */
+    public static final long MAX_CAPACITY = 1L << 30;
+
+    private static final long USED = 1L << 63;
+    // Slots per buffer; 16 bytes of key per slot keeps a buffer at 1 GB
+    private static final int CHUNK_BITS = 26;
+    private static final int CHUNK_MASK = (1 << CHUNK_BITS) - 1;
+
+    private final ByteBuffer[] keys;
+    private final ByteBuffer[] moves;
+    private final long mask;
+    private final long capacity;
+    private int size;
+
+    /**
+     * @param capacity most states the map will hold
+     */
+    public OffHeapStateMap(long capacity) {
+        if (capacity < 1 || capacity > MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be between 1 and " + MAX_CAPACITY);
+        }
+        long slots = 16;
+        while (slots < capacity * 2) {
+            slots <<= 1;
+        }
+        int chunkSlots = (int) Math.min(slots, 1L << CHUNK_BITS);
+        int chunks = (int) (slots / chunkSlots);
+        keys = new ByteBuffer[chunks];
+        moves = new ByteBuffer[chunks];
+        for (int k = 0; k < chunks; k++) {
+            // direct buffers start zeroed, i.e. every slot empty
+            keys[k] = ByteBuffer.allocateDirect(chunkSlots * 16).order(ByteOrder.nativeOrder());
+            moves[k] = ByteBuffer.allocateDirect(chunkSlots);
+        }
+        this.mask = slots - 1;
+        this.capacity = capacity;
+    }
+
+    /** @return most states the map can hold */
+    public long capacity() {
+        return capacity;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long footprint() {
+        return (mask + 1) * BYTES_PER_SLOT;
+    }
+
+    /**
+     * @throws IllegalStateException if the map already holds capacity() states
+     */
+    @Override
+    public boolean putIfAbsent(long c, long e, byte move) {
+        long i = indexOf(c, e);
+        ByteBuffer key = keys[(int) (i >>> CHUNK_BITS)];
+        int offset = ((int) i & CHUNK_MASK) * 16;
+        if (key.getLong(offset) != 0) {
+            return false;
+        }
+        if (size >= capacity) {
+            throw new IllegalStateException("Off-heap state map is full at " + capacity + " states");
+        }
+        key.putLong(offset, c | USED);
+        key.putLong(offset + 8, e);
+        moves[(int) (i >>> CHUNK_BITS)].put((int) i & CHUNK_MASK, move);
+        size++;
+        return true;
+    }
+
+    @Override
+    public byte get(long c, long e) {
+        long i = indexOf(c, e);
+        if (keys[(int) (i >>> CHUNK_BITS)].getLong(((int) i & CHUNK_MASK) * 16) == 0) {
+            return MISSING;
+        }
+        return moves[(int) (i >>> CHUNK_BITS)].get((int) i & CHUNK_MASK);
+    }
+
+    @Override
+    public boolean contains(long c, long e) {
+        long i = indexOf(c, e);
+        return keys[(int) (i >>> CHUNK_BITS)].getLong(((int) i & CHUNK_MASK) * 16) != 0;
+    }
+
+    // === HELPER FUNCTIONS ===
+
+    // Slot holding the key, or the empty slot where it would go
+    private long indexOf(long c, long e) {
+        long key = c | USED;
+        long i = StateMap.hash(c, e) & mask;
+        while (true) {
+            ByteBuffer chunk = keys[(int) (i >>> CHUNK_BITS)];
+            int offset = ((int) i & CHUNK_MASK) * 16;
+            long stored = chunk.getLong(offset);
+            if (stored == 0 || (stored == key && chunk.getLong(offset + 8) == e)) {
+                return i;
+            }
+            i = (i + 1) & mask;
+        }
+    }
+}
@@ -0,0 +1,329 @@
+package rubikscube;
+
+import java.util.Arrays;
+import java.util.Locale;
+import java.util.function.Consumer;
+
+/**
+ * Shortest solutions in the half-turn or quarter-turn metric.
+ *
+ * A two-phase solve gives a first solution quickly. IDA* over all 18 face
+ * turns, pruned by the pattern databases, then raises a proven lower bound
+ * one threshold at a time until it finds a solution, which is optimal, or
+ * reaches the length of the one it already has, which is then optimal too.
+ * If the deadline passes first, the best solution so far is returned and
+ * getLowerBound() says how far from optimal it can be.
+ *
+ * In the quarter-turn metric a half turn costs 2. Every quarter turn is an
+ * odd permutation of the corners, so the length of any solution has the
+ * parity of the corner permutation and the thresholds step by 2.
+ */
+public class OptimalSolver {
+
+    // How long one attempt at a shorter two-phase solution may take before IDA* takes over
+    private static final long IMPROVE_MILLIS = 100;
+
+    /** The metrics a solution can be measured in. */
+    public enum Metric {
+        HALF_TURN(20), QUARTER_TURN(26);
+
+        /** God's number: no cube needs more moves than this. */
+        public final int maxLength;
+
+        Metric(int maxLength) {
+            this.maxLength = maxLength;
+        }
+
+        /** @return the cost of move m */
+        public int cost(int m) {
+            return this == QUARTER_TURN && Moves.power(m) == 2 ? 2 : 1;
+        }
+
+        /** @return the cost of the first length moves */
+        public int length(int[] moves, int length) {
+            int total = 0;
+            for (int i = 0; i < length; i++) {
+                total += cost(moves[i]);
+            }
+            return total;
+        }
+
+        /** Parses "htm", "qtm", "half-turn" or "QUARTER_TURN". */
+        public static Metric parse(String name) {
+            String n = name.trim().toUpperCase(Locale.ROOT).replace('-', '_');
+            if (n.equals("HTM")) return HALF_TURN;
+            if (n.equals("QTM")) return QUARTER_TURN;
+            return valueOf(n);
+        }
+
+        /** @return the usual abbreviation, HTM or QTM */
+        @Override
+        public String toString() {
+            return this == HALF_TURN ? "HTM" : "QTM";
+        }
+    }
+
+    /** A solution found along the way, and what was proven when it was. */
+    public static final class Solution {
+        private final int[] moves;
+        private final int length;
+        private final int lowerBound;
+        private final long millis;
+
+        Solution(int[] moves, int length, int lowerBound, long millis) {
+            this.moves = moves.clone();
+            this.length = length;
+            this.lowerBound = lowerBound;
+            this.millis = millis;
+        }
+
+        /** @return the moves, see Moves */
+        public int[] getMoves() {
+            return moves.clone();
+        }
+
+        /** @return length in the solver's metric */
+        public int getLength() {
+            return length;
+        }
+
+        /** @return no solution is shorter than this, as far as the search had proven */
+        public int getLowerBound() {
+            return lowerBound;
+        }
+
+        public boolean isOptimal() {
+            return length == lowerBound;
+        }
+
+        /** @return milliseconds from the start of the solve */
+        public long getMillis() {
+            return millis;
+        }
+
+        /** @return the moves in quarter-turn notation, as solution files use */
+        @Override
+        public String toString() {
+            return Moves.toString(moves, moves.length);
+        }
+    }
+
+    private final Heuristic heuristic;
+    private final Metric metric;
+
+    // Per-search state
+    private final int[] path = new int[32];
+    private int[] best;
+    private int bestLength;
+    private int lowerBound;
+    private int threshold;
+    private CancellationToken token;
+    private long startMillis;
+    private boolean timedOut;
+    private Consumer<Solution> listener;
+    private boolean emittedOptimal;
+    private int clockCountdown;
+    private long nodes;
+    private long estimates;
+    private int iterations;
+
+    /**
+     * @param heuristic admissible estimate in the half-turn metric, which
+     * bounds the quarter-turn metric too
+     * @param metric what a move costs
+     */
+    public OptimalSolver(Heuristic heuristic, Metric metric) {
+        this.heuristic = heuristic;
+        this.metric = metric;
+    }
+
+    /**
+     * @param listener called, on the searching thread, with every strictly
+     * shorter solution as it is found, and once more when the last one is
+     * proven optimal; null for none
+     */
+    public void setListener(Consumer<Solution> listener) {
+        this.listener = listener;
+    }
+
+    /**
+     * @param deadline System.currentTimeMillis() value after which the best
+     * solution so far is returned, see solve(CubieCube, CancellationToken)
+     */
+    public String solve(CubieCube cube, long deadline) {
+        return solve(cube, new CancellationToken(deadline));
+    }
+
+    /**
+     * @param cube the cube to solve, not modified
+     * @param token deadline and cancellation; once it expires, the best
+     * solution so far is returned
+     * @return the best solution found, in quarter-turn notation, optimal
+     * unless timedOut(); null only if not even the first solve finished
+     */
+    public String solve(CubieCube cube, CancellationToken token) {
+        this.token = token;
+        startMillis = System.currentTimeMillis();
+        timedOut = false;
+        clockCountdown = CancellationToken.NODES_BETWEEN_CHECKS;
+        nodes = 0;
+        estimates = 0;
+        iterations = 0;
+        best = null;
+        bestLength = Integer.MAX_VALUE;
+        emittedOptimal = false;
+
+        int step = metric == Metric.QUARTER_TURN ? 2 : 1;
+        estimates++;
+        lowerBound = cube.isSolved() ? 0 : Math.max(1, heuristic.estimate(cube));
+        if (step == 2 && lowerBound % 2 != cornerParity(cube.corners)) {
+            lowerBound++;
+        }
+
+        // A first two-phase solution, then shorter ones for as long as they come quickly
+        int maxLength = TwoPhaseSolver.DEFAULT_MAX_LENGTH;
+        CancellationToken attemptToken = token;
+        while (bestLength > lowerBound && !token.isCancelled()) {
+            TwoPhaseSolver attempt = new TwoPhaseSolver();
+            boolean solved = attempt.solve(cube, maxLength, attemptToken) != null;
+            nodes += attempt.getNodesExplored();
+            if (!solved) {
+                break;
+            }
+            int[] moves = attempt.getMoves();
+            if (metric.length(moves, moves.length) < bestLength) {
+                found(moves, moves.length, metric.length(moves, moves.length));
+            }
+            maxLength = moves.length - 1;
+            attemptToken = token.withDeadline(System.currentTimeMillis() + IMPROVE_MILLIS);
+        }
+        if (token.expired()) {
+            timedOut = true;
+            return best == null ? null : Moves.toString(best, best.length);
+        }
+
+        CubieCube search = new CubieCube(cube.corners, cube.edges);
+        for (threshold = lowerBound; threshold < bestLength && threshold <= metric.maxLength; threshold += step) {
+            iterations++;
+            if (search(search, 0, 0, -1)) {
+                break;
+            }
+            if (timedOut) {
+                return best == null ? null : Moves.toString(best, best.length);
+            }
+            lowerBound = threshold + step;
+        }
+        if (best == null) {
+            return null;
+        }
+        lowerBound = bestLength;
+        if (listener != null && !emittedOptimal) {
+            listener.accept(new Solution(best, bestLength, lowerBound, System.currentTimeMillis() - startMillis));
+        }
+        return Moves.toString(best, best.length);
+    }
+
+    public boolean timedOut() {
+        return timedOut;
+    }
+
+    /** @return whether the last solution returned is proven shortest */
+    public boolean isOptimal() {
+        return best != null && lowerBound == bestLength;
+    }
+
+    /** @return length of the last solution in the metric, or -1 if there was none */
+    public int getLength() {
+        return best == null ? -1 : bestLength;
+    }
+
+    /** @return no solution of the last cube is shorter than this, in the metric */
+    public int getLowerBound() {
+        return lowerBound;
+    }
+
+    /** @return the moves of the last solution, see Moves, or null */
+    public int[] getMoves() {
+        return best == null ? null : best.clone();
+    }
+
+    public Metric getMetric() {
+        return metric;
+    }
+
+    /** @return nodes expanded by the last solve(), its two-phase solve included */
+    public long getNodesExplored() {
+        return nodes;
+    }
+
+    /** @return heuristic estimates made by the last solve() */
+    public long getHeuristicCalls() {
+        return estimates;
+    }
+
+    /** @return IDA* thresholds tried by the last solve() */
+    public int getIterations() {
+        return iterations;
+    }
+
+    // === SEARCH ===
+
+    private boolean search(CubieCube cube, int n, int g, int lastMove) {
+        if (--clockCountdown == 0) {
+            clockCountdown = CancellationToken.NODES_BETWEEN_CHECKS;
+            if (token.expired()) {
+                timedOut = true;
+            }
+        }
+        if (timedOut) {
+            return false;
+        }
+        if (cube.isSolved()) {
+            // no shorter solution exists, or an earlier threshold would have found it
+            lowerBound = g;
+            found(path, n, g);
+            return true;
+        }
+        estimates++;
+        if (g + heuristic.estimate(cube) > threshold) {
+            return false;
+        }
+        nodes++;
+
+        for (int move = 0; move < Moves.COUNT; move++) {
+            if (lastMove >= 0 && MoveSequence.redundant(lastMove, move)) {
+                continue;
+            }
+            cube.move(move);
+            path[n] = move;
+            if (search(cube, n + 1, g + metric.cost(move), move)) {
+                return true;
+            }
+            cube.move(Moves.inverse(move));
+        }
+        return false;
+    }
+
+    private void found(int[] moves, int n, int length) {
+        best = Arrays.copyOf(moves, n);
+        bestLength = length;
+        if (listener != null) {
+            emittedOptimal = length == lowerBound;
+            listener.accept(new Solution(best, length, lowerBound, System.currentTimeMillis() - startMillis));
+        }
+    }
+
+    // 0 for an even permutation of the corner cubies, 1 for an odd one
+    private static int cornerParity(long corners) {
+        int parity = 0;
+        for (int i = 0; i < 8; i++) {
+            int a = (int) (corners >>> (5 * i)) & 7;
+            for (int j = i + 1; j < 8; j++) {
+                if (a > ((int) (corners >>> (5 * j)) & 7)) {
+                    parity ^= 1;
+                }
+            }
+        }
+        return parity;
+    }
+}
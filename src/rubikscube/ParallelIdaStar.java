@@ -0,0 +1,251 @@
+package rubikscube;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * IDA* spread over a ForkJoinPool.
+ *
+ * For every threshold the tree is split into subtasks down to SPLIT_DEPTH
+ * moves, and each subtask then runs the usual depth-first search on its own
+ * copy of the cube. Idle workers steal subtasks from busy ones. The first
+ * solution found, or the deadline passing, raises a shared stop flag that
+ * every worker polls, so the whole pool winds down together. The token is
+ * checked before every threshold and at the start of every subtask, as
+ * well as every few thousand nodes within one, so it is honoured however
+ * small the subtrees are.
+ */
+public class ParallelIdaStar {
+
+    private static final int SPLIT_DEPTH = 3;
+    private static final int MAX_THRESHOLD = 20;
+
+    private final Heuristic heuristic;
+    private final int parallelism;
+
+    // Per-search state, shared by the workers
+    private volatile boolean stop;
+    private volatile boolean timedOut;
+    private CancellationToken token;
+    private int threshold;
+    private final AtomicReference<String> solution = new AtomicReference<>();
+    private final LongAdder nodes = new LongAdder();
+    private final LongAdder estimates = new LongAdder();
+    private int iterations;
+
+    /**
+     * @param heuristic admissible, thread-safe estimate
+     * @param parallelism number of worker threads
+     */
+    public ParallelIdaStar(Heuristic heuristic, int parallelism) {
+        if (parallelism < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        this.heuristic = heuristic;
+        this.parallelism = parallelism;
+    }
+
+    /**
+     * @param cube the cube to solve, not modified
+     * @param deadline System.currentTimeMillis() value after which the search gives up
+     * @return a shortest solution in the half-turn metric, written in quarter-turn
+     * notation, or null if the deadline passed first
+     */
+    public String solve(CubieCube cube, long deadline) {
+        return solve(cube, new CancellationToken(deadline));
+    }
+
+    /**
+     * @param cube the cube to solve, not modified
+     * @param token deadline and cancellation of the search
+     * @return a shortest solution in the half-turn metric, or null if the
+     * token expired first
+     */
+    public String solve(CubieCube cube, CancellationToken token) {
+        this.token = token;
+        stop = false;
+        timedOut = false;
+        solution.set(null);
+        nodes.reset();
+        estimates.reset();
+        iterations = 0;
+
+        if (cube.isSolved()) {
+            return "";
+        }
+
+        ForkJoinPool pool = new ForkJoinPool(parallelism);
+        try {
+            for (threshold = heuristic.estimate(cube); threshold <= MAX_THRESHOLD; threshold++) {
+                if (expired()) {
+                    break;
+                }
+                iterations++;
+                pool.invoke(new SubtreeTask(new CubieCube(cube.corners, cube.edges), new int[MAX_THRESHOLD], 0, -1));
+                if (solution.get() != null || timedOut) {
+                    break;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        return solution.get();
+    }
+
+    public boolean timedOut() {
+        return timedOut;
+    }
+
+    /** @return nodes expanded by the last solve() across all workers */
+    public long getNodesExplored() {
+        return nodes.sum();
+    }
+
+    /** @return heuristic estimates made by the last solve() across all workers */
+    public long getHeuristicCalls() {
+        return estimates.sum();
+    }
+
+    /** @return thresholds tried by the last solve() */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Prints solve time against thread count, 1 to the number of cores,
+     * for each scramble file given.
+     */
+    public static void main(String[] args) throws Exception {
+        int cores = Runtime.getRuntime().availableProcessors();
+        Heuristic heuristic = PatternDatabaseHeuristic.shared();
+        System.out.println("file,threads,ms,nodes,speedup");
+        for (String file : args) {
+            CubieCube cube = new RubiksCube(file).getCubieCube();
+            long single = 0;
+            for (int threads = 1; threads <= cores; threads++) {
+                ParallelIdaStar search = new ParallelIdaStar(heuristic, threads);
+                long start = System.nanoTime();
+                String result = search.solve(cube, System.currentTimeMillis() + 60_000);
+                long ms = (System.nanoTime() - start) / 1_000_000;
+                if (threads == 1) single = Math.max(ms, 1);
+                System.out.println(file + "," + threads + "," + (result == null ? "timeout" : ms) + ","
+                    + search.getNodesExplored() + "," + String.format(Locale.ROOT, "%.2f", (double) single / Math.max(ms, 1)));
+            }
+        }
+    }
+
+    // === SEARCH ===
+
+    private class SubtreeTask extends RecursiveAction {
+        private static final long serialVersionUID = 1L;
+
+        private final CubieCube cube;
+        private final int[] path;
+        private final int g;
+        private final int lastMove;
+
+        SubtreeTask(CubieCube cube, int[] path, int g, int lastMove) {
+            this.cube = cube;
+            this.path = path;
+            this.g = g;
+            this.lastMove = lastMove;
+        }
+
+        @Override
+        protected void compute() {
+            if (stop || expired()) {
+                return;
+            }
+            if (g >= SPLIT_DEPTH) {
+                Worker worker = new Worker();
+                worker.search(cube, path, g, lastMove);
+                nodes.add(worker.nodes);
+                estimates.add(worker.estimates);
+                return;
+            }
+            if (cube.isSolved()) {
+                found(path, g);
+                return;
+            }
+            estimates.increment();
+            if (g + heuristic.estimate(cube) > threshold) {
+                return;
+            }
+            nodes.increment();
+
+            List<SubtreeTask> children = new ArrayList<>();
+            for (int move = 0; move < Moves.COUNT; move++) {
+                if (lastMove >= 0 && MoveSequence.redundant(lastMove, move)) {
+                    continue;
+                }
+                CubieCube child = new CubieCube(cube.corners, cube.edges);
+                child.move(move);
+                int[] childPath = path.clone();
+                childPath[g] = move;
+                children.add(new SubtreeTask(child, childPath, g + 1, move));
+            }
+            invokeAll(children);
+        }
+    }
+
+    // Sequential IDA* below the split depth; one per subtask, so no sharing
+    private class Worker {
+        long nodes;
+        long estimates;
+        int clockCountdown = CancellationToken.NODES_BETWEEN_CHECKS;
+
+        boolean search(CubieCube cube, int[] path, int g, int lastMove) {
+            if (stop) {
+                return false;
+            }
+            if (--clockCountdown == 0) {
+                clockCountdown = CancellationToken.NODES_BETWEEN_CHECKS;
+                if (expired()) {
+                    return false;
+                }
+            }
+            if (cube.isSolved()) {
+                found(path, g);
+                return true;
+            }
+            estimates++;
+            if (g + heuristic.estimate(cube) > threshold) {
+                return false;
+            }
+            nodes++;
+
+            for (int move = 0; move < Moves.COUNT; move++) {
+                if (lastMove >= 0 && MoveSequence.redundant(lastMove, move)) {
+                    continue;
+                }
+                cube.move(move);
+                path[g] = move;
+                if (search(cube, path, g + 1, move)) {
+                    return true;
+                }
+                cube.move(Moves.inverse(move));
+            }
+            return false;
+        }
+    }
+
+    // Reads the clock; stops the whole search if the token has expired
+    private boolean expired() {
+        if (token.expired()) {
+            timedOut = true;
+            stop = true;
+        }
+        return timedOut;
+    }
+
+    private void found(int[] path, int length) {
+        if (solution.compareAndSet(null, Moves.toString(path, length))) {
+            stop = true;
+        }
+    }
+}
@@ -0,0 +1,282 @@
+package rubikscube;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Exact distance-to-solved for a projection of the cube: all 8 corners, or
+ * 6 chosen edges. Distances are half-turn moves, stored 4 bits per entry.
+ *
+ *   corners: cornerPerm * 2187 + twist              88,179,840 entries, 44 MB
+ *   6 edges: rank of their slots * 64 + their flips  42,577,920 entries, 21 MB
+ *
+ * Tables are generated by breadth-first search from the solved state and
+ * kept in a PruningTableStore, so they are built once and memory-mapped after.
+ *
+ * A search can also carry the entry index instead of a cube: move() gives
+ * the index after a move from a move table (corner perm and twist tables,
+ * or one table of 6-edge slot ranks shared by every edge database), so
+ * estimating is a single read.
+ */
+public class PatternDatabase implements Heuristic {
+
+    private static final int TABLE_VERSION = 2;
+    private static final int UNSEEN = 15;
+
+    private static final int N_CORNERS = Coordinates.N_PERM_8 * Coordinates.N_TWIST;
+    private static final int N_EDGE_SLOTS = 12 * 11 * 10 * 9 * 8 * 7;
+    private static final int N_EDGES = N_EDGE_SLOTS * 64;
+
+    private final ByteBuffer table;
+    private final int[] edges; // tracked edge cubies, null for the corner database
+    private final Expander expander;
+    private final int solved;
+
+    private PatternDatabase(ByteBuffer table, int[] edges, Expander expander, int solved) {
+        this.table = table;
+        this.edges = edges;
+        this.expander = expander;
+        this.solved = solved;
+    }
+
+    /**
+     * @return the corner database, loaded from or generated into store
+     */
+    public static PatternDatabase corners(PruningTableStore store) {
+        CornerExpander expander = new CornerExpander(
+            store.loadInts("corner-perm-move", Coordinates.MOVE_TABLE_VERSION, Coordinates.N_PERM_8 * Moves.COUNT,
+                Coordinates::cornerPermMoveTable),
+            store.loadInts("twist-move", Coordinates.MOVE_TABLE_VERSION, Coordinates.N_TWIST * Moves.COUNT,
+                Coordinates::twistMoveTable));
+        ByteBuffer table = store.load("corner-pdb", TABLE_VERSION, N_CORNERS / 2,
+            () -> generate(N_CORNERS, 0, expander));
+        return new PatternDatabase(table, null, expander, 0);
+    }
+
+    /**
+     * @param edges the 6 edge cubies to track
+     * @return the database for those edges, loaded from or generated into store
+     */
+    public static PatternDatabase edges(PruningTableStore store, int[] edges) {
+        if (edges.length != 6) {
+            throw new IllegalArgumentException("Edge databases track exactly 6 edges");
+        }
+        StringBuilder name = new StringBuilder("edge-pdb");
+        for (int e : edges) {
+            name.append('-').append(e);
+        }
+        int[] tracked = edges.clone();
+        EdgeExpander expander = new EdgeExpander(
+            store.loadInts("edge-slot-move", Coordinates.MOVE_TABLE_VERSION, N_EDGE_SLOTS * Moves.COUNT,
+                PatternDatabase::slotMoveTable));
+        int solved = edgeIndex(new CubieCube(), tracked);
+        ByteBuffer table = store.load(name.toString(), TABLE_VERSION, N_EDGES / 2,
+            () -> generate(N_EDGES, solved, expander));
+        return new PatternDatabase(table, tracked, expander, solved);
+    }
+
+    @Override
+    public int estimate(CubieCube cube) {
+        return distance(index(cube));
+    }
+
+    /** @return the entry of cube */
+    int index(CubieCube cube) {
+        return edges == null ? cornerIndex(cube) : edgeIndex(cube, edges);
+    }
+
+    /** @return the entry of the solved cube */
+    int solvedIndex() {
+        return solved;
+    }
+
+    /** @return the entry reached from entry index by move m */
+    int move(int index, int m) {
+        return expander.neighbour(index, m);
+    }
+
+    /** @return the stored distance of entry index */
+    int distance(int index) {
+        int b = table.get(index >>> 1);
+        return (index & 1) == 0 ? b & 15 : (b >>> 4) & 15;
+    }
+
+    // === INDEXING ===
+
+    static int cornerIndex(CubieCube cube) {
+        return Coordinates.cornerPerm(cube) * Coordinates.N_TWIST + Coordinates.twist(cube);
+    }
+
+    static int edgeIndex(CubieCube cube, int[] tracked) {
+        int[] slot = new int[6];
+        int flips = 0;
+        for (int j = 0; j < 12; j++) {
+            int cubie = cube.edgeAt(j);
+            for (int k = 0; k < 6; k++) {
+                if (tracked[k] == cubie) {
+                    slot[k] = j;
+                    flips |= cube.flipAt(j) << k;
+                }
+            }
+        }
+        return rankSlots(slot) * 64 + flips;
+    }
+
+    // Rank of 6 distinct slots out of 12, in 0..665279
+    static int rankSlots(int[] slot) {
+        int rank = 0;
+        for (int k = 0; k < 6; k++) {
+            int smaller = 0;
+            for (int j = 0; j < k; j++) {
+                if (slot[j] < slot[k]) smaller++;
+            }
+            rank = rank * (12 - k) + slot[k] - smaller;
+        }
+        return rank;
+    }
+
+    static void unrankSlots(int rank, int[] slot) {
+        int[] digit = new int[6];
+        for (int k = 5; k >= 0; k--) {
+            digit[k] = rank % (12 - k);
+            rank /= 12 - k;
+        }
+        boolean[] used = new boolean[12];
+        for (int k = 0; k < 6; k++) {
+            // the digit[k]-th free slot
+            int d = digit[k];
+            for (int j = 0; j < 12; j++) {
+                if (used[j]) continue;
+                if (d == 0) {
+                    slot[k] = j;
+                    used[j] = true;
+                    break;
+                }
+                d--;
+            }
+        }
+    }
+
+    // === GENERATION ===
+
+    /** Moves between entries. */
+    interface Expander {
+        int neighbour(int index, int m);
+
+        /** Fills the 18 neighbours of an entry. */
+        default void neighbours(int index, int[] out) {
+            for (int m = 0; m < Moves.COUNT; m++) {
+                out[m] = neighbour(index, m);
+            }
+        }
+    }
+
+    private static class CornerExpander implements Expander {
+        private final IntBuffer permMove;
+        private final IntBuffer twistMove;
+
+        CornerExpander(IntBuffer permMove, IntBuffer twistMove) {
+            this.permMove = permMove;
+            this.twistMove = twistMove;
+        }
+
+        @Override
+        public int neighbour(int index, int m) {
+            int perm = index / Coordinates.N_TWIST;
+            int twist = index - perm * Coordinates.N_TWIST;
+            return permMove.get(perm * Moves.COUNT + m) * Coordinates.N_TWIST
+                + twistMove.get(twist * Moves.COUNT + m);
+        }
+    }
+
+    private static class EdgeExpander implements Expander {
+        // new slot rank in the low 20 bits, flips toggled by the move above them
+        private final IntBuffer slotMove;
+
+        EdgeExpander(IntBuffer slotMove) {
+            this.slotMove = slotMove;
+        }
+
+        @Override
+        public int neighbour(int index, int m) {
+            int t = slotMove.get((index >>> 6) * Moves.COUNT + m);
+            return (t & 0xFFFFF) << 6 | ((index & 63) ^ t >>> 20);
+        }
+    }
+
+    /**
+     * table[rank * 18 + m] = rank of the 6 slots after move m, with the
+     * flips it toggles from bit 20 up; the same for any 6 tracked edges
+     */
+    static int[] slotMoveTable() {
+        int[] table = new int[N_EDGE_SLOTS * Moves.COUNT];
+        int[] slot = new int[6];
+        int[] moved = new int[6];
+        for (int rank = 0; rank < N_EDGE_SLOTS; rank++) {
+            unrankSlots(rank, slot);
+            for (int m = 0; m < Moves.COUNT; m++) {
+                int toggled = 0;
+                for (int k = 0; k < 6; k++) {
+                    moved[k] = Moves.edgeDestination(m, slot[k]);
+                    toggled |= Moves.edgeFlipChange(m, slot[k]) << k;
+                }
+                table[rank * Moves.COUNT + m] = rankSlots(moved) | toggled << 20;
+            }
+        }
+        return table;
+    }
+
+    /**
+     * Breadth-first search from the solved entry over size entries.
+     * Once more than half the entries are known it is cheaper to scan the
+     * unseen ones and look for a neighbour on the current frontier.
+     */
+    static byte[] generate(int size, int solved, Expander expander) {
+        byte[] table = new byte[(size + 1) / 2];
+        Arrays.fill(table, (byte) 0xFF);
+        set(table, solved, 0);
+
+        int[] next = new int[Moves.COUNT];
+        long seen = 1;
+        for (int depth = 0; seen < size && depth < UNSEEN - 1; depth++) {
+            long before = seen;
+            boolean backward = seen > size / 2;
+            for (int i = 0; i < size; i++) {
+                int d = get(table, i);
+                if (backward) {
+                    if (d != UNSEEN) continue;
+                    expander.neighbours(i, next);
+                    for (int m = 0; m < Moves.COUNT; m++) {
+                        if (get(table, next[m]) == depth) {
+                            set(table, i, depth + 1);
+                            seen++;
+                            break;
+                        }
+                    }
+                } else {
+                    if (d != depth) continue;
+                    expander.neighbours(i, next);
+                    for (int m = 0; m < Moves.COUNT; m++) {
+                        if (get(table, next[m]) == UNSEEN) {
+                            set(table, next[m], depth + 1);
+                            seen++;
+                        }
+                    }
+                }
+            }
+            if (seen == before) break;
+        }
+        return table;
+    }
+
+    private static int get(byte[] table, int i) {
+        int b = table[i >>> 1];
+        return (i & 1) == 0 ? b & 15 : (b >>> 4) & 15;
+    }
+
+    private static void set(byte[] table, int i, int value) {
+        int b = table[i >>> 1];
+        table[i >>> 1] = (byte) ((i & 1) == 0 ? (b & 0xF0) | value : (b & 0x0F) | value << 4);
+    }
+}
@@ -0,0 +1,59 @@
+package rubikscube;
+
+/**
+ * Max of three pattern databases: all corners, the 6 edges UR UF UL UB DR DF
+ * and the 6 edges DL DB FR FL BL BR. Each is exact for its own pieces, so
+ * their max is still admissible.
+ */
+public class PatternDatabaseHeuristic implements Heuristic {
+
+    private final PatternDatabase corners;
+    private final PatternDatabase firstEdges;
+    private final PatternDatabase secondEdges;
+
+    /**
+     * @param store where the databases are cached; generating them the first
+     * time takes a while and about 90 MB of disk
+     */
+    public PatternDatabaseHeuristic(PruningTableStore store) {
+        corners = PatternDatabase.corners(store);
+        firstEdges = PatternDatabase.edges(store, new int[] {
+            CubieCube.UR, CubieCube.UF, CubieCube.UL, CubieCube.UB, CubieCube.DR, CubieCube.DF
+        });
+        secondEdges = PatternDatabase.edges(store, new int[] {
+            CubieCube.DL, CubieCube.DB, CubieCube.FR, CubieCube.FL, CubieCube.BL, CubieCube.BR
+        });
+    }
+
+    /**
+     * @return the heuristic backed by the default table store, loaded once per JVM
+     */
+    public static PatternDatabaseHeuristic shared() {
+        return Holder.SHARED;
+    }
+
+    @Override
+    public int estimate(CubieCube cube) {
+        int h = corners.estimate(cube);
+        h = Math.max(h, firstEdges.estimate(cube));
+        return Math.max(h, secondEdges.estimate(cube));
+    }
+
+    PatternDatabase corners() {
+        return corners;
+    }
+
+    PatternDatabase firstEdges() {
+        return firstEdges;
+    }
+
+    PatternDatabase secondEdges() {
+        return secondEdges;
+    }
+
+    // Lazy, thread-safe initialisation on first use
+    private static class Holder {
+        static final PatternDatabaseHeuristic SHARED =
+            new PatternDatabaseHeuristic(PruningTableStore.defaultStore());
+    }
+}
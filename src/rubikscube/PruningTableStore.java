@@ -0,0 +1,198 @@
+package rubikscube;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.IntBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.function.Supplier;
+import java.util.zip.CRC32;
+
+/**
+ * On-disk cache for move and pruning tables.
+ *
+ * Each table lives in its own file, name + ".tbl":
+ *   int  magic         'RCPT'
+ *   int  format        FORMAT_VERSION
+ *   int  table version chosen by the caller, bumped whenever the generator changes
+ *   int  reserved
+ *   long payload length in bytes
+ *   long CRC32 of the payload
+ *   payload (ints are little-endian)
+ *
+ * load() maps the payload read-only with FileChannel.map, so tables are
+ * shared through the page cache and never copied onto the heap. A file that
+ * is missing, from another version, the wrong size or fails its checksum is
+ * regenerated and rewritten (via a temporary file and an atomic rename).
+ * If the directory cannot be written the freshly generated table is used
+ * from the heap instead.
+ */
+public class PruningTableStore {
+
+    public static final int FORMAT_VERSION = 1;
+
+    private static final int MAGIC = 0x52435054; // "RCPT"
+    private static final int HEADER_SIZE = 32;
+
+    private final Path directory;
+    private int mapped;
+    private int generated;
+    private long loadNanos;
+
+    /**
+     * @param directory where table files are kept, created if needed
+     */
+    public PruningTableStore(Path directory) {
+        this.directory = directory;
+    }
+
+    /**
+     * @return the store in the directory named by the rubikscube.tables system
+     * property, or ~/.rubikscube/tables
+     */
+    public static PruningTableStore defaultStore() {
+        String dir = System.getProperty("rubikscube.tables");
+        if (dir == null) {
+            return new PruningTableStore(Paths.get(System.getProperty("user.home"), ".rubikscube", "tables"));
+        }
+        return new PruningTableStore(Paths.get(dir));
+    }
+
+    /**
+     * @param name file name of the table, without extension
+     * @param version table version, a file with any other version is stale
+     * @param length expected size in bytes
+     * @param generator builds the table when the file cannot be used
+     * @return the table as a read-only buffer
+     */
+    public synchronized ByteBuffer load(String name, int version, int length, Supplier<byte[]> generator) {
+        long start = System.nanoTime();
+        Path file = directory.resolve(name + ".tbl");
+
+        ByteBuffer table = map(file, version, length);
+        if (table != null) {
+            mapped++;
+        } else {
+            byte[] data = generator.get();
+            if (data.length != length) {
+                throw new IllegalStateException("Table " + name + " has " + data.length + " bytes, expected " + length);
+            }
+            generated++;
+            table = write(file, version, data);
+        }
+
+        loadNanos += System.nanoTime() - start;
+        return table.order(ByteOrder.LITTLE_ENDIAN);
+    }
+
+    /**
+     * Like load(), for tables of ints
+     */
+    public IntBuffer loadInts(String name, int version, int count, Supplier<int[]> generator) {
+        return load(name, version, count * 4, () -> {
+            int[] ints = generator.get();
+            ByteBuffer bytes = ByteBuffer.allocate(ints.length * 4).order(ByteOrder.LITTLE_ENDIAN);
+            bytes.asIntBuffer().put(ints);
+            return bytes.array();
+        }).asIntBuffer();
+    }
+
+    /** @return how many tables were mapped from existing files */
+    public synchronized int getMapped() {
+        return mapped;
+    }
+
+    /** @return how many tables had to be generated */
+    public synchronized int getGenerated() {
+        return generated;
+    }
+
+    /** @return total time spent in load(), in milliseconds */
+    public synchronized long getLoadMillis() {
+        return loadNanos / 1_000_000;
+    }
+
+    public Path getDirectory() {
+        return directory;
+    }
+
+    // === HELPER FUNCTIONS ===
+
+    // Map a table file, or null if it is missing or unusable
+    private ByteBuffer map(Path file, int version, int length) {
+        if (!Files.isRegularFile(file)) {
+            return null;
+        }
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.READ)) {
+            if (channel.size() != HEADER_SIZE + (long) length) {
+                return null;
+            }
+            ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                // keep reading
+            }
+            header.flip();
+            if (header.remaining() != HEADER_SIZE
+                    || header.getInt() != MAGIC
+                    || header.getInt() != FORMAT_VERSION
+                    || header.getInt() != version) {
+                return null;
+            }
+            header.getInt();
+            long payloadLength = header.getLong();
+            long checksum = header.getLong();
+            if (payloadLength != length) {
+                return null;
+            }
+
+            ByteBuffer payload = channel.map(FileChannel.MapMode.READ_ONLY, HEADER_SIZE, length);
+            if (crc(payload) != checksum) {
+                return null;
+            }
+            return payload;
+        } catch (IOException e) {
+            return null;
+        }
+    }
+
+    // Write a table file and map it back; fall back to the heap copy if that fails
+    private ByteBuffer write(Path file, int version, byte[] data) {
+        ByteBuffer payload = ByteBuffer.wrap(data);
+        try {
+            Files.createDirectories(directory);
+            Path tmp = Files.createTempFile(directory, file.getFileName().toString(), ".tmp");
+            try {
+                try (FileChannel channel = FileChannel.open(tmp, StandardOpenOption.WRITE)) {
+                    ByteBuffer header = ByteBuffer.allocate(HEADER_SIZE);
+                    header.putInt(MAGIC).putInt(FORMAT_VERSION).putInt(version).putInt(0);
+                    header.putLong(data.length).putLong(crc(payload));
+                    header.flip();
+                    while (header.hasRemaining()) channel.write(header);
+                    while (payload.hasRemaining()) channel.write(payload);
+                }
+                Files.move(tmp, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(tmp);
+            }
+
+            ByteBuffer table = map(file, version, data.length);
+            if (table != null) {
+                return table;
+            }
+        } catch (IOException e) {
+            // not cached, the heap copy still works
+        }
+        return ByteBuffer.wrap(data).asReadOnlyBuffer();
+    }
+
+    private static long crc(ByteBuffer buffer) {
+        CRC32 crc = new CRC32();
+        crc.update(buffer.duplicate());
+        return crc.getValue();
+    }
+}
@@ -1,12 +1,30 @@
 package rubikscube;
 
-import java.io.BufferedReader;
-import java.io.FileReader;
 import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.stream.IntStream;
 
 public class RubiksCube {
 
-    private String[] cube;
+    // Net position (row, column) of every facelet, faces in U, R, F, D, L, B order
+    static final int[] NET_ROW = new int[54];
+    static final int[] NET_COL = new int[54];
+    private static final char[] DEFAULT_COLORS = {'O', 'B', 'W', 'R', 'G', 'Y'};
+
+    static {
+        // top-left corner of each face in the net
+        int[] faceRow = {0, 3, 3, 6, 3, 3};
+        int[] faceCol = {3, 6, 3, 3, 0, 9};
+        for (int f = 0; f < 6; f++) {
+            for (int i = 0; i < 9; i++) {
+                NET_ROW[f * 9 + i] = faceRow[f] + i / 3;
+                NET_COL[f * 9 + i] = faceCol[f] + i % 3;
+            }
+        }
+    }
+
+    private final CubieCube state;
+    private final char[] colors; // centre colour of each face
 
     /**
      * default constructor
@@ -22,16 +40,16 @@ public class RubiksCube {
      *    RRR
      */
     public RubiksCube() {
-        cube = new String[9];
-        cube[0] = "   OOO";
-        cube[1] = "   OOO";
-        cube[2] = "   OOO";
-        cube[3] = "GGGWWWBBBYYY";
-        cube[4] = "GGGWWWBBBYYY";
-        cube[5] = "GGGWWWBBBYYY";
-        cube[6] = "   RRR";
-        cube[7] = "   RRR";
-        cube[8] = "   RRR";
+        state = new CubieCube();
+        colors = DEFAULT_COLORS.clone();
+    }
+
+    /**
+     * @param other the cube to copy, colours included
+     */
+    public RubiksCube(RubiksCube other) {
+        state = new CubieCube(other.state.corners, other.state.edges);
+        colors = other.colors.clone();
     }
 
     /**
@@ -41,31 +59,22 @@ public class RubiksCube {
      * Creates a Rubik's Cube from the description in fileName
      */
     public RubiksCube(String fileName) throws IOException, IncorrectFormatException {
-        cube = new String[9];
-
-        // System.out.println("Looking for file: " + new java.io.File(fileName).getAbsolutePath());
-
-        try (BufferedReader br = new BufferedReader(new FileReader(fileName))){
-            for (int i = 0; i < 9; i++) {
-                String line = br.readLine(); // a line from the file
-
-                if (line == null) throw new IncorrectFormatException("File ended before 9 lines");
+        this(FaceletParser.parse(Paths.get(fileName)));
+    }
 
-                // Validating textfile format
-                if ((i >= 0 && i <= 2) || (i >= 6 && i <= 8)) {
-                    if (line.length() != 6) {
-                        throw new IncorrectFormatException("Line " + (i + 1) + "should have 6 lines.");
-                    }
-                }
+    // A parsed cube and the colours of its centres, see FaceletParser
+    RubiksCube(CubieCube state, char[] colors) {
+        this.state = state;
+        this.colors = colors;
+    }
 
-                if (i >= 3 && i <= 5 && line.length() != 12) {
-                    throw new IncorrectFormatException("Line " + (i + 1) + "should have 12 lines.");
-                }
-                
-                cube[i] = line;
-            }   
-            if (br.readLine() != null) throw new IncorrectFormatException("File has more than 9 lines");
-        }
+    /**
+     * @param net the 9 lines of a scramble file, e.g. a request body
+     * @return the cube it describes
+     * @throws IncorrectFormatException if the net is malformed or the cube unsolvable
+     */
+    public static RubiksCube fromNet(String net) throws IncorrectFormatException {
+        return FaceletParser.parse(net);
     }
 
     /**
@@ -75,78 +84,62 @@ public class RubiksCube {
     public void applyMoves(String moves) {
 
         for (int i = 0; i < moves.length(); i++) {
-            char move = moves.charAt(i);
+            int move = Moves.quarterTurn(moves.charAt(i));
+            if (move >= 0) {
+                state.move(move);
+            }
+        }
+    }
 
-            switch (move) {
-                case 'F': {
-                    // Rotate front face
-                    rotateFaceClockwise(3, 3);
-                    // Rotate surrounding edges
-                    rotateEdges(
-                        new int[][]{{2, 3}, {2, 4}, {2, 5}},   // top
-                        new int[][]{{3, 6}, {4, 6}, {5, 6}},   // right
-                        new int[][]{{6, 5}, {6, 4}, {6, 3}},   // bottom
-                        new int[][]{{5, 2}, {4, 2}, {3, 2}}    // left
-                    );
-                    break;
-                }
+    /**
+     * @param move one of the 18 moves in Moves
+     * Applies a single move without allocating
+     */
+    public void applyMove(int move) {
+        state.move(move);
+    }
 
-                case 'B': {
-                    rotateFaceClockwise(3, 9);
-                    rotateEdges(
-                        new int[][]{{0, 5}, {0, 4}, {0, 3}},  // top
-                        new int[][]{{3, 0}, {4, 0}, {5, 0}},    // right
-                        new int[][]{{8, 3}, {8, 4}, {8, 5}},  // bottom
-                        new int[][]{{5, 8}, {4, 8}, {3, 8}}     // left
-                    );
-                    break;
-                }
+    /**
+     * @param move a move applied last
+     * Takes it back, without allocating
+     */
+    public void undoMove(int move) {
+        state.move(Moves.inverse(move));
+    }
 
-                case 'R': {
-                    rotateFaceClockwise(3, 6);
-                    rotateEdges(
-                        new int[][]{{2, 5}, {1, 5}, {0, 5}},    // top
-                        new int[][]{{3, 9}, {4, 9}, {5, 9}},    // right
-                        new int[][]{{8, 5}, {7, 5}, {6, 5}},    // bottom
-                        new int[][]{{5, 5}, {4, 5}, {3, 5}}     // left
-                    );
-                    break;
-                }
+    /**
+     * @param target the cube to overwrite with this one, colours included,
+     * without allocating
+     */
+    public void copyInto(RubiksCube target) {
+        target.state.copyFrom(state);
+        System.arraycopy(colors, 0, target.colors, 0, colors.length);
+    }
 
-                case 'L': {
-                    rotateFaceClockwise(3, 0);
-                    rotateEdges(
-                        new int[][]{{0, 3}, {1, 3}, {2, 3}},    // top
-                        new int[][]{{3, 3}, {4, 3}, {5, 3}},    // right
-                        new int[][]{{6, 3}, {7, 3}, {8, 3}},    // bottom
-                        new int[][]{{5, 11}, {4, 11}, {3, 11}}     // left
-                    );
-                    break;
-                }
+    /**
+     * @param into where to save the current state; restore(into) returns to it
+     */
+    public void snapshot(CubieCube into) {
+        into.copyFrom(state);
+    }
 
-                case 'U': {
-                    rotateFaceClockwise(0, 3);
-                    rotateEdges(
-                        new int[][]{{3, 9}, {3, 10}, {3, 11}},   // top
-                        new int[][]{{3, 6}, {3, 7}, {3, 8}},   // right
-                        new int[][]{{3, 3}, {3, 4}, {3, 5}}, // bottom
-                        new int[][]{{3, 0}, {3, 1}, {3, 2}}    // left
-                    );
-                    break;
-                }
+    /**
+     * @param snapshot a state saved by snapshot(), or any cubie-level state
+     */
+    public void restore(CubieCube snapshot) {
+        state.copyFrom(snapshot);
+    }
 
-                case 'D': {
-                    rotateFaceClockwise(6, 3);
-                    rotateEdges(
-                        new int[][]{{5, 3}, {5, 4}, {5, 5}},   // top
-                        new int[][]{{5, 6}, {5, 7}, {5, 8}},   // right
-                        new int[][]{{5, 9}, {5, 10}, {5, 11}}, // bottom
-                        new int[][]{{5, 0}, {5, 1}, {5, 2}}    // left
-                    );
-                    break;
-                }
-            }
-        }
+    /**
+     * @return a copy of the cubie-level state of this cube
+     */
+    public CubieCube getCubieCube() {
+        return new CubieCube(state.corners, state.edges);
+    }
+
+    // The live state, for solvers in this package that must not allocate
+    CubieCube cubieState() {
+        return state;
     }
 
     /**
@@ -163,16 +156,25 @@ public class RubiksCube {
      *    RRR
      */
     public boolean isSolved() {
-        // Create a new default "solved" cube
-        RubiksCube solvedCube = new RubiksCube();
-        return this.toString().equals(solvedCube.toString());
+        return state.isSolved();
     }
 
     @Override
     public String toString() {
+        int[] facelets = new int[54];
+        state.toFacelets(facelets);
+
+        char[][] net = new char[9][];
+        for (int i = 0; i < 9; i++) {
+            net[i] = (i >= 3 && i <= 5) ? new char[12] : "      ".toCharArray();
+        }
+        for (int i = 0; i < 54; i++) {
+            net[NET_ROW[i]][NET_COL[i]] = colors[facelets[i]];
+        }
+
         StringBuilder sb = new StringBuilder();
-        for (int i = 0; i < cube.length; i++) {
-            sb.append(cube[i]);
+        for (int i = 0; i < net.length; i++) {
+            sb.append(net[i]);
             sb.append('\n'); // add newline after each row
         }
         return sb.toString();
@@ -181,82 +183,33 @@ public class RubiksCube {
     /**
      *
      * @param moves
-     * @return the order of the sequence of moves
+     * @return the order of the sequence of moves: how many times it must be
+     * repeated to return to the starting state. The sequence is applied
+     * once and the order read off the cycles of its permutation, see
+     * CubieCube.order().
      */
     public static int order(String moves) {
-        // 1. Start with a solved cube (initial state)
         RubiksCube cube = new RubiksCube();
-        String initialState = cube.toString();
-        
-        // 2. Apply moves once
         cube.applyMoves(moves);
-        int n = 1;
-
-        // 3. Keep applying moves until the cube returns to the initial state
-        while (!cube.toString().equals(initialState)) {
-            cube.applyMoves(moves);
-            n++;
-        }
-        return n;
+        return cube.state.order();
     }
 
-    // === HELPER FUNCTIONS === 
-
-    // Replace one character in a string (since Strings are immutable in Java)
-    private String replaceChar(String s, int index, char c) {
-        return s.substring(0, index) + c + s.substring(index + 1);
-    }
-
-    // Rotate a 3x3 face in place (given top-left corner coordinates in the cube)
-    private void rotateFaceClockwise(int startRow, int startCol) {
-        char[][] temp = new char[3][3];
-
-        // Copy face
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                temp[i][j] = cube[startRow + i].charAt(startCol + j);
-            }
-        }
-
-        // Write rotated back into cube
-        for (int i = 0; i < 3; i++) {
-            for (int j = 0; j < 3; j++) {
-                cube[startRow + i] = replaceChar(
-                    cube[startRow + i],
-                    startCol + j,
-                    temp[2 - j][i]
-                );
-            }
-        }
+    /**
+     * @param sequences move sequences, as order() takes
+     * @return the order of each, computed in parallel on the common pool
+     */
+    public static int[] orders(String[] sequences) {
+        return IntStream.range(0, sequences.length).parallel().map(i -> order(sequences[i])).toArray();
     }
 
-    // Rotate 4 edge strips (each strip = 3 coordinates [row, col]) safely
-    private void rotateEdges(int[][] top, int[][] right, int[][] bottom, int[][] left) {
-        // save originals
-        char[] topVal = new char[3];
-        char[] rightVal = new char[3];
-        char[] bottomVal = new char[3];
-        char[] leftVal = new char[3];
-
-        for (int i = 0; i < 3; i++) {
-            topVal[i] = cube[top[i][0]].charAt(top[i][1]);
-            rightVal[i] = cube[right[i][0]].charAt(right[i][1]);
-            bottomVal[i] = cube[bottom[i][0]].charAt(bottom[i][1]);
-            leftVal[i] = cube[left[i][0]].charAt(left[i][1]);
-        }
+    // === HELPER FUNCTIONS === 
 
-        // write rotated values (clockwise): top <- left, right <- top, bottom <- right, left <- bottom
-        for (int i = 0; i < 3; i++) {
-            cube[top[i][0]] = replaceChar(cube[top[i][0]], top[i][1], leftVal[i]);
-        }
-        for (int i = 0; i < 3; i++) {
-            cube[right[i][0]] = replaceChar(cube[right[i][0]], right[i][1], topVal[i]);
-        }
-        for (int i = 0; i < 3; i++) {
-            cube[bottom[i][0]] = replaceChar(cube[bottom[i][0]], bottom[i][1], rightVal[i]);
-        }
-        for (int i = 0; i < 3; i++) {
-            cube[left[i][0]] = replaceChar(cube[left[i][0]], left[i][1], bottomVal[i]);
-        }
+    /**
+     * @param net the 9 lines of a cube net, as produced by toString()
+     * @throws IncorrectFormatException
+     * Replaces the state of this cube with the one described by net
+     */
+    void setNet(String net) throws IncorrectFormatException {
+        FaceletParser.parse(net).copyInto(this);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,207 @@
+package rubikscube;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Reproducible scrambles in any number, for load tests and benchmarks.
+ *
+ * Two kinds: a random walk of a given number of moves (never two turns of
+ * one face in a row, opposite faces in one order, see MoveSequence), or a
+ * uniformly random state of the whole cube group, what a fair scramble
+ * aims for. The same seed always gives the same scrambles.
+ *
+ * They are written either as nets in the scramble file format, separated
+ * by blank lines (read them back with FaceletParser.next()), or in a
+ * compact binary format: the packed corners and edges of each cube as two
+ * big-endian longs, 16 bytes per cube.
+ */
+public class ScrambleGenerator {
+
+    /** Bytes per cube in the binary format. */
+    public static final int BINARY_RECORD = 16;
+
+    private final SplittableRandom random;
+
+    public ScrambleGenerator(long seed) {
+        random = new SplittableRandom(seed);
+    }
+
+    /**
+     * @param depth moves in the walk
+     * @return the cube after a random canonical walk of depth moves from solved
+     */
+    public CubieCube randomMoves(int depth) {
+        CubieCube cube = new CubieCube();
+        int last = -1;
+        for (int i = 0; i < depth; i++) {
+            int m;
+            do {
+                m = random.nextInt(Moves.COUNT);
+            } while (last >= 0 && MoveSequence.redundant(last, m));
+            cube.move(m);
+            last = m;
+        }
+        return cube;
+    }
+
+    /**
+     * @return a state drawn uniformly from the 43,252,003,274,489,856,000
+     * the cube can reach
+     */
+    public CubieCube randomState() {
+        int[] cp = shuffle(8);
+        int[] ep = shuffle(12);
+        if (parity(cp) != parity(ep)) {
+            // the other half of the edge permutations, as likely as this one
+            int t = ep[0];
+            ep[0] = ep[1];
+            ep[1] = t;
+        }
+
+        long corners = 0;
+        int twists = 0;
+        for (int i = 0; i < 8; i++) {
+            int twist = i < 7 ? random.nextInt(3) : (3 - twists % 3) % 3;
+            twists += twist;
+            corners |= (long) (cp[i] | twist << 3) << (5 * i);
+        }
+        long edges = 0;
+        int flips = 0;
+        for (int i = 0; i < 12; i++) {
+            int flip = i < 11 ? random.nextInt(2) : flips & 1;
+            flips += flip;
+            edges |= (long) (ep[i] | flip << 4) << (5 * i);
+        }
+        return new CubieCube(corners, edges);
+    }
+
+    /**
+     * @param depth moves per scramble, or a negative number for uniformly random states
+     * @return count scrambles
+     */
+    public List<CubieCube> generate(int count, int depth) {
+        List<CubieCube> cubes = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            cubes.add(depth < 0 ? randomState() : randomMoves(depth));
+        }
+        return cubes;
+    }
+
+    /**
+     * Writes cubes as nets with the default colours, one blank line apart
+     */
+    public static void writeNets(List<CubieCube> cubes, Path file) throws IOException {
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(file))) {
+            RubiksCube net = new RubiksCube();
+            for (CubieCube cube : cubes) {
+                net.restore(cube);
+                writer.println(net);
+            }
+        }
+    }
+
+    /**
+     * Writes cubes in the binary format
+     */
+    public static void writeBinary(List<CubieCube> cubes, Path file) throws IOException {
+        ByteBuffer out = ByteBuffer.allocate(cubes.size() * BINARY_RECORD);
+        for (CubieCube cube : cubes) {
+            out.putLong(cube.corners).putLong(cube.edges);
+        }
+        Files.write(file, out.array());
+    }
+
+    /**
+     * @return the cubes of a file writeNets() or writeBinary() wrote, told
+     * apart by the .bin extension of the binary ones
+     * @throws IncorrectFormatException if one of them is not a solvable cube
+     */
+    public static List<CubieCube> read(Path file) throws IOException, IncorrectFormatException {
+        List<CubieCube> cubes = new ArrayList<>();
+        ByteBuffer in = FaceletParser.map(file);
+        if (file.getFileName().toString().endsWith(".bin")) {
+            if (in.remaining() % BINARY_RECORD != 0) {
+                throw new IncorrectFormatException("Binary scramble file length is not a multiple of " + BINARY_RECORD);
+            }
+            while (in.hasRemaining()) {
+                CubieCube cube = new CubieCube(in.getLong(), in.getLong());
+                cube.verify();
+                cubes.add(cube);
+            }
+        } else {
+            RubiksCube cube;
+            while ((cube = FaceletParser.next(in)) != null) {
+                cubes.add(cube.getCubieCube());
+            }
+        }
+        return cubes;
+    }
+
+    /**
+     * Usage: ScrambleGenerator count output [depth|random-state] [seed]
+     * Writes the binary format when output ends in .bin, nets otherwise.
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || args.length > 4) {
+            System.err.println("usage: ScrambleGenerator <count> <output[.bin]> [depth|random-state] [seed]");
+            System.exit(1);
+        }
+        int count = Integer.parseInt(args[0]);
+        Path output = Paths.get(args[1]);
+        int depth = args.length > 2 ? parseDepth(args[2]) : -1;
+        long seed = args.length > 3 ? Long.parseLong(args[3]) : 1;
+
+        List<CubieCube> cubes = new ScrambleGenerator(seed).generate(count, depth);
+        if (output.getFileName().toString().endsWith(".bin")) {
+            writeBinary(cubes, output);
+        } else {
+            writeNets(cubes, output);
+        }
+        System.err.println("Wrote " + count + " " + (depth < 0 ? "random-state" : depth + "-move")
+            + " scrambles (seed " + seed + ") to " + output);
+    }
+
+    /**
+     * @return the depth a depth argument names, -1 for "random-state"
+     */
+    static int parseDepth(String arg) {
+        return arg.equals("random-state") ? -1 : Integer.parseInt(arg);
+    }
+
+    // === HELPER FUNCTIONS ===
+
+    // A uniformly random permutation of 0..n-1
+    private int[] shuffle(int n) {
+        int[] perm = new int[n];
+        for (int i = 0; i < n; i++) {
+            perm[i] = i;
+        }
+        for (int i = n - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int t = perm[i];
+            perm[i] = perm[j];
+            perm[j] = t;
+        }
+        return perm;
+    }
+
+    private static int parity(int[] perm) {
+        int parity = 0;
+        for (int i = 0; i < perm.length; i++) {
+            for (int j = i + 1; j < perm.length; j++) {
+                if (perm[i] > perm[j]) {
+                    parity ^= 1;
+                }
+            }
+        }
+        return parity;
+    }
+}
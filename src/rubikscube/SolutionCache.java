@@ -0,0 +1,287 @@
+package rubikscube;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Solutions already found, so a scramble seen before, or any of its 47
+ * symmetric variants, is answered without searching.
+ *
+ * Entries are keyed by the representative of the cube's symmetry class
+ * (Symmetry.canonical()) and hold a solution of that representative. A
+ * lookup maps it back to the cube asked about: each move is conjugated by
+ * the symmetry that took the cube to the representative, and for the
+ * mirrors, which also take the inverse, the sequence is reversed and every
+ * move undone. Either way the length is unchanged. Each key also carries a
+ * kind, so solutions of different strategies are kept apart.
+ *
+ * The least recently used entry is evicted once there are capacity of
+ * them. Entries can be saved to and loaded from a text file, one per line.
+ * Thread-safe.
+ */
+public class SolutionCache {
+
+    private final int capacity;
+    private final Path file;
+    private final Map<Key, byte[]> entries;
+    private long hits;
+    private long misses;
+    private long evictions;
+
+    /**
+     * @param capacity entries kept before the least recently used is evicted
+     */
+    public SolutionCache(int capacity) {
+        this(capacity, null);
+    }
+
+    /**
+     * @param capacity entries kept before the least recently used is evicted
+     * @param file where save() writes the entries, loaded now if it exists;
+     * null to keep them in memory only
+     */
+    public SolutionCache(int capacity, Path file) {
+        if (capacity < 1) {
+            throw new IllegalArgumentException("capacity must be at least 1");
+        }
+        this.capacity = capacity;
+        this.file = file;
+        this.entries = new LinkedHashMap<Key, byte[]>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, byte[]> eldest) {
+                if (size() > SolutionCache.this.capacity) {
+                    evictions++;
+                    return true;
+                }
+                return false;
+            }
+        };
+        if (file != null && Files.exists(file)) {
+            try {
+                load(file);
+            } catch (IOException e) {
+                // a missing or damaged cache only costs the searches it would have saved
+                System.err.println("Could not load solution cache " + file + ": " + e.getMessage());
+            }
+        }
+    }
+
+    /**
+     * @return the cache the rubikscube.cache system property sizes (in
+     * entries), backed by the file rubikscube.cache.file names if set;
+     * null when the property is unset or 0
+     */
+    public static SolutionCache fromSystemProperties() {
+        int capacity = Integer.getInteger("rubikscube.cache", 0);
+        if (capacity <= 0) {
+            return null;
+        }
+        String file = System.getProperty("rubikscube.cache.file");
+        return new SolutionCache(capacity, file == null ? null : Paths.get(file));
+    }
+
+    /**
+     * @param cube the cube to solve
+     * @param kind which kind of solution, e.g. the name of the strategy that
+     * found it; saved with the entry, so no spaces
+     * @return a cached solution of cube, see Moves, or null on a miss
+     */
+    public int[] get(CubieCube cube, String kind) {
+        int s = Symmetry.canonicalSymmetry(cube);
+        Key key = key(cube, s, kind);
+        byte[] stored;
+        synchronized (this) {
+            stored = entries.get(key);
+            if (stored == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+
+        // the representative's moves, undone by the symmetry; see the class comment
+        int n = stored.length;
+        int[] moves = new int[n];
+        for (int i = 0; i < n; i++) {
+            int m = inverseConjugate(stored[i], s);
+            if (s < Symmetry.ROTATIONS) {
+                moves[i] = m;
+            } else {
+                moves[n - 1 - i] = Moves.inverse(m);
+            }
+        }
+        return moves;
+    }
+
+    /**
+     * @param cube a cube
+     * @param kind which kind of solution, as for get()
+     * @param moves a solution of cube, see Moves
+     */
+    public void put(CubieCube cube, String kind, int[] moves) {
+        int s = Symmetry.canonicalSymmetry(cube);
+        int n = moves.length;
+        byte[] stored = new byte[n];
+        for (int i = 0; i < n; i++) {
+            int m = s < Symmetry.ROTATIONS ? moves[i] : Moves.inverse(moves[n - 1 - i]);
+            stored[i] = (byte) Symmetry.conjugateMove(m, s);
+        }
+        Key key = key(cube, s, kind);
+        synchronized (this) {
+            entries.put(key, stored);
+        }
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    /** @return entries dropped to stay within capacity */
+    public synchronized long getEvictions() {
+        return evictions;
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /** @return hits as a fraction of lookups, 0 before the first */
+    public synchronized double getHitRate() {
+        long lookups = hits + misses;
+        return lookups == 0 ? 0 : (double) hits / lookups;
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    /**
+     * Writes the entries to the file given at construction, if any
+     */
+    public void save() throws IOException {
+        if (file != null) {
+            save(file);
+        }
+    }
+
+    /**
+     * Writes every entry as a line: kind, representative corners and edges
+     * in hex, and its solution in quarter-turn notation; least recently
+     * used first, so loading keeps the order
+     */
+    public void save(Path path) throws IOException {
+        List<String> lines = new ArrayList<>();
+        synchronized (this) {
+            for (Map.Entry<Key, byte[]> entry : entries.entrySet()) {
+                Key key = entry.getKey();
+                int[] moves = new int[entry.getValue().length];
+                for (int i = 0; i < moves.length; i++) {
+                    moves[i] = entry.getValue()[i];
+                }
+                lines.add(key.kind + " " + Long.toHexString(key.corners) + " " + Long.toHexString(key.edges)
+                    + " " + Moves.toString(moves, moves.length));
+            }
+        }
+        Path parent = path.toAbsolutePath().getParent();
+        if (parent != null) {
+            Files.createDirectories(parent);
+        }
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(path))) {
+            lines.forEach(writer::println);
+        }
+    }
+
+    /**
+     * Adds the entries save() wrote to path
+     */
+    public void load(Path path) throws IOException {
+        try (BufferedReader reader = Files.newBufferedReader(path)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                String[] fields = line.trim().split(" ");
+                if (fields.length != 4) {
+                    continue;
+                }
+                try {
+                    Key key = new Key(Long.parseUnsignedLong(fields[1], 16), Long.parseUnsignedLong(fields[2], 16),
+                        fields[0]);
+                    int[] moves = MoveSequence.simplify(MoveSequence.parse(fields[3]));
+                    byte[] stored = new byte[moves.length];
+                    for (int i = 0; i < moves.length; i++) {
+                        stored[i] = (byte) moves[i];
+                    }
+                    synchronized (this) {
+                        entries.put(key, stored);
+                    }
+                } catch (NumberFormatException e) {
+                    // skip the line
+                }
+            }
+        }
+    }
+
+    /** @return size, hits, misses, hit rate and evictions on one line */
+    @Override
+    public synchronized String toString() {
+        return String.format(Locale.ROOT, "solution cache: %d/%d entries, %d hits, %d misses (%.1f%% hit rate), %d evictions",
+            entries.size(), capacity, hits, misses, 100 * getHitRate(), evictions);
+    }
+
+    // === HELPER FUNCTIONS ===
+
+    private static Key key(CubieCube cube, int s, String kind) {
+        CubieCube representative = Symmetry.image(cube, s);
+        return new Key(representative.corners, representative.edges, kind);
+    }
+
+    // The move whose conjugate by s is m
+    private static int inverseConjugate(int m, int s) {
+        for (int candidate = 0; candidate < Moves.COUNT; candidate++) {
+            if (Symmetry.conjugateMove(candidate, s) == m) {
+                return candidate;
+            }
+        }
+        throw new IllegalStateException("Move " + m + " is no conjugate under symmetry " + s);
+    }
+
+    private static final class Key {
+        final long corners;
+        final long edges;
+        final String kind;
+
+        Key(long corners, long edges, String kind) {
+            this.corners = corners;
+            this.edges = edges;
+            this.kind = kind;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Key)) return false;
+            Key other = (Key) o;
+            return corners == other.corners && edges == other.edges && kind.equals(other.kind);
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(corners * 0x9E3779B97F4A7C15L ^ edges) * 31 + kind.hashCode();
+        }
+    }
+}
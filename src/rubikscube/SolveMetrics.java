@@ -0,0 +1,211 @@
+package rubikscube;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Locale;
+
+/**
+ * What one Solver.solve() call did, phase by phase: a single strategy runs
+ * one phase, the cascade up to three.
+ *
+ * toJson() renders the whole solve as one JSON line. Every phase is also
+ * committed as a rubikscube.SolvePhase JFR event, so a recording
+ * (-XX:StartFlightRecording) captures production solves without a profiler.
+ */
+public class SolveMetrics {
+
+    private final String strategy;
+    private final long startNanos = System.nanoTime();
+    private final List<Phase> phases = new ArrayList<>();
+    private long millis;
+    private long firstSolutionMillis = -1;
+    private boolean solved;
+    private boolean timedOut;
+    private boolean cached;
+
+    SolveMetrics(Solver.Strategy strategy) {
+        this.strategy = name(strategy);
+    }
+
+    /** Counters for one strategy run inside a solve. */
+    public static class Phase {
+        private final String strategy;
+        private final long startNanos = System.nanoTime();
+        private final SolvePhaseEvent event = new SolvePhaseEvent();
+        long nodes;
+        long heuristicCalls;
+        int iterations;
+        long peakFrontier;
+        long peakVisited;
+        private long millis;
+        private boolean solved;
+        private boolean timedOut;
+
+        Phase(String strategy) {
+            this.strategy = strategy;
+            event.begin();
+        }
+
+        /** Records frontier and visited-set sizes, keeping the largest seen. */
+        void peak(long frontier, long visited) {
+            peakFrontier = Math.max(peakFrontier, frontier);
+            peakVisited = Math.max(peakVisited, visited);
+        }
+
+        public String getStrategy() {
+            return strategy;
+        }
+
+        public long getNodes() {
+            return nodes;
+        }
+
+        public long getNodesPerSecond() {
+            return nodes * 1000 / Math.max(millis, 1);
+        }
+
+        public long getHeuristicCalls() {
+            return heuristicCalls;
+        }
+
+        /** @return IDA* thresholds (or BFS levels) tried */
+        public int getIterations() {
+            return iterations;
+        }
+
+        public long getPeakFrontier() {
+            return peakFrontier;
+        }
+
+        public long getPeakVisited() {
+            return peakVisited;
+        }
+
+        public long getMillis() {
+            return millis;
+        }
+
+        public boolean isSolved() {
+            return solved;
+        }
+
+        public boolean isTimedOut() {
+            return timedOut;
+        }
+
+        String toJson() {
+            return "{\"strategy\":\"" + strategy + "\",\"millis\":" + millis + ",\"nodes\":" + nodes
+                + ",\"nodesPerSecond\":" + getNodesPerSecond() + ",\"heuristicCalls\":" + heuristicCalls
+                + ",\"iterations\":" + iterations + ",\"peakFrontier\":" + peakFrontier
+                + ",\"peakVisited\":" + peakVisited + ",\"solved\":" + solved + ",\"timedOut\":" + timedOut + "}";
+        }
+    }
+
+    Phase begin(Solver.Strategy phaseStrategy) {
+        Phase phase = new Phase(name(phaseStrategy));
+        phases.add(phase);
+        return phase;
+    }
+
+    void end(Phase phase, boolean phaseSolved, boolean phaseTimedOut) {
+        long now = System.nanoTime();
+        phase.millis = (now - phase.startNanos) / 1_000_000;
+        phase.solved = phaseSolved;
+        phase.timedOut = phaseTimedOut;
+        if (phaseSolved && firstSolutionMillis < 0) {
+            firstSolutionMillis = (now - startNanos) / 1_000_000;
+        }
+
+        SolvePhaseEvent event = phase.event;
+        if (event.shouldCommit()) {
+            event.strategy = phase.strategy;
+            event.nodes = phase.nodes;
+            event.heuristicCalls = phase.heuristicCalls;
+            event.iterations = phase.iterations;
+            event.peakFrontier = phase.peakFrontier;
+            event.peakVisited = phase.peakVisited;
+            event.solved = phaseSolved;
+            event.timedOut = phaseTimedOut;
+            event.commit();
+        }
+    }
+
+    void finish(boolean solveSolved, boolean solveTimedOut) {
+        millis = (System.nanoTime() - startNanos) / 1_000_000;
+        if (solveSolved && firstSolutionMillis < 0) {
+            // solved without searching, e.g. an already solved cube
+            firstSolutionMillis = millis;
+        }
+        solved = solveSolved;
+        timedOut = solveTimedOut;
+    }
+
+    public String getStrategy() {
+        return strategy;
+    }
+
+    public List<Phase> getPhases() {
+        return Collections.unmodifiableList(phases);
+    }
+
+    public long getMillis() {
+        return millis;
+    }
+
+    /** @return milliseconds from the start of the solve to its first solution, or -1 */
+    public long getFirstSolutionMillis() {
+        return firstSolutionMillis;
+    }
+
+    public boolean isSolved() {
+        return solved;
+    }
+
+    public boolean isTimedOut() {
+        return timedOut;
+    }
+
+    /** @return whether the solution came from a SolutionCache, without searching */
+    public boolean isCached() {
+        return cached;
+    }
+
+    void markCached() {
+        cached = true;
+    }
+
+    /** @return the solve as a single line of JSON */
+    public String toJson() {
+        return toJson(null);
+    }
+
+    /**
+     * @param file scramble file the solve was for, or null
+     * @return the solve as a single line of JSON, starting with a "file" field
+     * if one is given
+     */
+    public String toJson(String file) {
+        StringBuilder json = new StringBuilder("{");
+        if (file != null) {
+            json.append("\"file\":\"").append(file.replace("\\", "\\\\").replace("\"", "\\\""))
+                .append("\",");
+        }
+        json.append("\"strategy\":\"").append(strategy).append("\",\"millis\":").append(millis)
+            .append(",\"firstSolutionMillis\":").append(firstSolutionMillis)
+            .append(",\"solved\":").append(solved).append(",\"timedOut\":").append(timedOut)
+            .append(",\"cached\":").append(cached).append(",\"phases\":[");
+        for (int i = 0; i < phases.size(); i++) {
+            if (i > 0) json.append(',');
+            json.append(phases.get(i).toJson());
+        }
+        return json.append("]}").toString();
+    }
+
+    // === HELPER FUNCTIONS ===
+
+    // The name the command line takes, e.g. "two-phase"
+    private static String name(Solver.Strategy strategy) {
+        return strategy.name().toLowerCase(Locale.ROOT).replace('_', '-');
+    }
+}
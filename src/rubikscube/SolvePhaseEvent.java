@@ -0,0 +1,41 @@
+package rubikscube;
+
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+
+/**
+ * JFR event for one strategy run inside a solve, see SolveMetrics.
+ */
+@Name("rubikscube.SolvePhase")
+@Label("Solve Phase")
+@Category("Rubik's Cube")
+@Description("One search strategy run by Solver.solve")
+class SolvePhaseEvent extends jdk.jfr.Event {
+
+    @Label("Strategy")
+    String strategy;
+
+    @Label("Nodes Expanded")
+    long nodes;
+
+    @Label("Heuristic Calls")
+    long heuristicCalls;
+
+    @Label("Iterations")
+    @Description("IDA* thresholds or BFS levels tried")
+    int iterations;
+
+    @Label("Peak Frontier")
+    long peakFrontier;
+
+    @Label("Peak Visited")
+    long peakVisited;
+
+    @Label("Solved")
+    boolean solved;
+
+    @Label("Timed Out")
+    boolean timedOut;
+}
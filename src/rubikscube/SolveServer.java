@@ -0,0 +1,354 @@
+package rubikscube;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Long-running solve service on localhost, so a caller pays JVM start-up
+ * and table loading once instead of per scramble.
+ *
+ *   POST /solve[?strategy=two-phase]  body: the 9 lines of a scramble file
+ *        200 the solution, as Solver.main writes it
+ *        400 the net is malformed or not a legal cube
+ *        503 the queue is full; retry later
+ *        504 the solve timed out
+ *   GET  /stats                       counters and latency percentiles as JSON
+ *
+ * Requests wait in a bounded queue. A dispatcher takes them in
+ * micro-batches: whatever arrived within BATCH_WINDOW_MILLIS of the first,
+ * up to batchSize. Identical cubes in a batch are solved once. Each
+ * distinct cube then goes to a pool of solver threads sharing one warm
+ * Solver. The dispatcher only takes a new batch while a solver thread is
+ * free, so when every solver is busy the queue fills up and further
+ * requests are refused with 503 rather than piling up. Handler threads do
+ * not wait for solves either: a request is answered when its solve
+ * completes, so the queue is the only place requests wait.
+ *
+ * Every strategy is warmed up before the server starts, so a request
+ * naming another strategy than the default does not wait for its tables.
+ */
+public class SolveServer {
+
+    private static final long BATCH_WINDOW_MILLIS = 2;
+    private static final int DEFAULT_PORT = 8125;
+
+    private final Solver solver = new Solver();
+    private final Solver.Strategy strategy;
+    private final int threads;
+    private final int batchSize;
+    private final BlockingQueue<Request> queue;
+    private final Semaphore idleSolvers;
+    private final LatencyHistogram latencies = new LatencyHistogram();
+    private final AtomicLong requests = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+    private final AtomicLong badRequests = new AtomicLong();
+    private final AtomicLong timedOut = new AtomicLong();
+    private final AtomicLong batches = new AtomicLong();
+    private final AtomicLong batched = new AtomicLong();
+    private final AtomicLong solves = new AtomicLong();
+    private HttpServer server;
+    private ExecutorService solverPool;
+    private ExecutorService handlerPool;
+    private Thread dispatcher;
+
+    /**
+     * @param strategy strategy of requests that do not name one
+     * @param threads solves run at once
+     * @param queueCapacity requests that may wait before new ones are refused
+     * @param batchSize requests the dispatcher takes at once
+     */
+    public SolveServer(Solver.Strategy strategy, int threads, int queueCapacity, int batchSize) {
+        if (threads < 1 || queueCapacity < 1 || batchSize < 1) {
+            throw new IllegalArgumentException("threads, queue capacity and batch size must be at least 1");
+        }
+        this.strategy = strategy;
+        this.threads = threads;
+        this.batchSize = batchSize;
+        this.queue = new ArrayBlockingQueue<>(queueCapacity);
+        this.idleSolvers = new Semaphore(threads);
+        if (threads > 1) {
+            // the pool already keeps every core busy with other requests
+            solver.setParallelism(1);
+        }
+    }
+
+    /**
+     * Usage: SolveServer [port] [strategy] [threads] [queueCapacity]
+     * Listens on the loopback interface only.
+     */
+    public static void main(String[] args) throws Exception {
+        if (args.length > 4) {
+            System.err.println("usage: SolveServer [port] [strategy] [threads] [queueCapacity]");
+            System.exit(1);
+        }
+        int port = args.length > 0 ? Integer.parseInt(args[0]) : DEFAULT_PORT;
+        Solver.Strategy strategy = args.length > 1 ? Solver.Strategy.parse(args[1]) : Solver.Strategy.TWO_PHASE;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+        int capacity = args.length > 3 ? Integer.parseInt(args[3]) : 64 * threads;
+
+        SolveServer server = new SolveServer(strategy, threads, capacity, 2 * threads);
+        InetSocketAddress address = server.start(port);
+        System.err.println("Solving " + strategy + " on http://" + address.getHostString() + ":" + address.getPort()
+            + " with " + threads + " threads, queue " + capacity);
+        Runtime.getRuntime().addShutdownHook(new Thread(server::stop));
+    }
+
+    /**
+     * Warms up the solver, then starts serving
+     * @param port port on the loopback interface, or 0 for any free one
+     * @return the address bound
+     */
+    public synchronized InetSocketAddress start(int port) throws IOException {
+        for (Solver.Strategy s : Solver.Strategy.values()) {
+            solver.warmUp(s);
+        }
+        solverPool = Executors.newFixedThreadPool(threads);
+        // handlers only parse, queue and answer requests, never wait for a solve
+        handlerPool = Executors.newFixedThreadPool(threads);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), port), 0);
+        server.createContext("/solve", this::handleSolve);
+        server.createContext("/stats", this::handleStats);
+        server.setExecutor(handlerPool);
+        dispatcher = new Thread(this::dispatch, "solve-dispatcher");
+        dispatcher.setDaemon(true);
+        dispatcher.start();
+        server.start();
+        return server.getAddress();
+    }
+
+    /**
+     * Stops accepting requests and fails the ones still queued
+     */
+    public synchronized void stop() {
+        if (server == null) {
+            return;
+        }
+        server.stop(0);
+        dispatcher.interrupt();
+        Request request;
+        while ((request = queue.poll()) != null) {
+            request.result.completeExceptionally(new CancellationException("Server stopped"));
+        }
+        solverPool.shutdownNow();
+        handlerPool.shutdownNow();
+        server = null;
+    }
+
+    /** @return the shared solver, e.g. to set a cache or timeout before start() */
+    public Solver getSolver() {
+        return solver;
+    }
+
+    /** @return counters and latency percentiles as one line of JSON */
+    public String statsJson() {
+        long b = batches.get();
+        return "{\"requests\":" + requests.get() + ",\"solves\":" + solves.get()
+            + ",\"rejected\":" + rejected.get() + ",\"badRequests\":" + badRequests.get()
+            + ",\"timedOut\":" + timedOut.get() + ",\"queued\":" + queue.size()
+            + ",\"batches\":" + b + ",\"meanBatch\":" + String.format(Locale.ROOT, "%.2f", b == 0 ? 0.0 : (double) batched.get() / b)
+            + ",\"p50Millis\":" + millis(latencies.getValueAtPercentile(50))
+            + ",\"p99Millis\":" + millis(latencies.getValueAtPercentile(99))
+            + ",\"maxMillis\":" + millis(latencies.getMax()) + "}";
+    }
+
+    // === REQUESTS ===
+
+    private void handleSolve(HttpExchange exchange) throws IOException {
+        long start = System.nanoTime();
+        boolean queued = false;
+        try {
+            if (!exchange.getRequestMethod().equals("POST")) {
+                respond(exchange, 405, "POST a scramble net to /solve");
+                return;
+            }
+            requests.incrementAndGet();
+            Request request;
+            try {
+                String net = new String(exchange.getRequestBody().readAllBytes(), StandardCharsets.UTF_8);
+                String name = query(exchange.getRequestURI(), "strategy");
+                request = new Request(RubiksCube.fromNet(net), name == null ? strategy : Solver.Strategy.parse(name));
+            } catch (IncorrectFormatException | IllegalArgumentException e) {
+                badRequests.incrementAndGet();
+                respond(exchange, 400, "Error: " + e.getMessage());
+                return;
+            }
+
+            if (!queue.offer(request)) {
+                rejected.incrementAndGet();
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 503, "Busy: " + queue.size() + " requests queued");
+                return;
+            }
+            queued = true;
+            // the solve has its own timeout; this only guards against a stuck server
+            request.result.orTimeout(60, TimeUnit.SECONDS)
+                .whenCompleteAsync((solution, failure) -> answer(exchange, start, solution, failure), handlerPool);
+        } finally {
+            if (!queued) {
+                exchange.close();
+            }
+        }
+    }
+
+    // Answers a queued request once its solve is done
+    private void answer(HttpExchange exchange, long start, String solution, Throwable failure) {
+        try {
+            if (failure instanceof CancellationException) {
+                respond(exchange, 503, "Server stopping");
+                return;
+            } else if (failure != null) {
+                respond(exchange, 500, "Error: Could not solve cube");
+                return;
+            } else if (solution == null) {
+                timedOut.incrementAndGet();
+                respond(exchange, 504, "No solution found - timed out");
+            } else {
+                respond(exchange, 200, solution);
+            }
+            latencies.record((System.nanoTime() - start) / 1000);
+        } catch (IOException e) {
+            // the client has gone
+        } finally {
+            exchange.close();
+        }
+    }
+
+    private void handleStats(HttpExchange exchange) throws IOException {
+        try {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            respond(exchange, 200, statsJson());
+        } finally {
+            exchange.close();
+        }
+    }
+
+    // Takes batches off the queue while a solver thread is free
+    private void dispatch() {
+        List<Request> batch = new ArrayList<>(batchSize);
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                idleSolvers.acquire();
+                idleSolvers.release();
+                batch.add(queue.take());
+                long windowEnd = System.nanoTime() + TimeUnit.MILLISECONDS.toNanos(BATCH_WINDOW_MILLIS);
+                while (batch.size() < batchSize) {
+                    long wait = windowEnd - System.nanoTime();
+                    Request next = wait > 0 ? queue.poll(wait, TimeUnit.NANOSECONDS) : queue.poll();
+                    if (next == null) break;
+                    batch.add(next);
+                }
+                batches.incrementAndGet();
+                batched.addAndGet(batch.size());
+
+                // one solve per distinct cube and strategy in the batch
+                Map<Request, List<Request>> distinct = new LinkedHashMap<>();
+                for (Request request : batch) {
+                    distinct.computeIfAbsent(request, r -> new ArrayList<>()).add(request);
+                }
+                batch.clear();
+                for (List<Request> same : distinct.values()) {
+                    idleSolvers.acquire();
+                    solverPool.execute(() -> solve(same));
+                }
+            }
+        } catch (InterruptedException e) {
+            // stopped
+        }
+    }
+
+    private void solve(List<Request> same) {
+        try {
+            Request first = same.get(0);
+            solves.incrementAndGet();
+            String solution = solver.solve(first.cube, first.strategy);
+            for (Request request : same) {
+                request.result.complete(solution);
+            }
+        } catch (RuntimeException e) {
+            for (Request request : same) {
+                request.result.completeExceptionally(e);
+            }
+        } finally {
+            idleSolvers.release();
+        }
+    }
+
+    // === HELPER FUNCTIONS ===
+
+    private static void respond(HttpExchange exchange, int status, String body) throws IOException {
+        byte[] bytes = (body + "\n").getBytes(StandardCharsets.UTF_8);
+        if (!exchange.getResponseHeaders().containsKey("Content-Type")) {
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    private static String millis(long micros) {
+        return String.format(Locale.ROOT, "%.3f", micros / 1000.0);
+    }
+
+    // The value of one name=value query parameter, or null
+    private static String query(URI uri, String name) {
+        String query = uri.getQuery();
+        if (query == null) {
+            return null;
+        }
+        for (String pair : query.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq > 0 && pair.substring(0, eq).equals(name)) {
+                return pair.substring(eq + 1);
+            }
+        }
+        return null;
+    }
+
+    // One queued request; equal when it asks for the same solve
+    private static final class Request {
+        final RubiksCube cube;
+        final Solver.Strategy strategy;
+        final CubieCube state;
+        final CompletableFuture<String> result = new CompletableFuture<>();
+
+        Request(RubiksCube cube, Solver.Strategy strategy) {
+            this.cube = cube;
+            this.strategy = strategy;
+            this.state = cube.getCubieCube();
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof Request)) return false;
+            Request other = (Request) o;
+            return state.equals(other.state) && strategy == other.strategy;
+        }
+
+        @Override
+        public int hashCode() {
+            return state.hashCode() * 31 + strategy.hashCode();
+        }
+    }
+}
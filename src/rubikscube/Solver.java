@@ -1,22 +1,78 @@
 package rubikscube;
 
 import java.io.*;
+import java.lang.management.ManagementFactory;
 import java.util.*;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
 
 /**
  * Bidirectional BFS Rubik's Cube Solver
  * Fast non-optimal solver for deeply scrambled cubes
+ *
+ * Each solve keeps its state in its own Context, so once configured, one
+ * Solver can run many solves at once on different threads, each with its
+ * own CancellationToken. The BFS strategies' visited sets share one heap
+ * budget, so concurrent solves get smaller ones rather than running out
+ * of memory.
  */
 public class Solver {
     
     private static final char[] ALL_MOVES = {'U', 'D', 'F', 'B', 'L', 'R'};
+    // frontier states simpleBFS moves at once; 16 KB per CubeBatch array
+    private static final int BFS_BATCH = 1024;
     private static final long TIMEOUT_MS = 10000; // 10 second timeout
-    private int nodesExplored;
-    private long startTime;
-    private boolean timedOut;
+    // StateMap slots at worst-case load and while growing, plus the frontier entry
+    private static final int BYTES_PER_VISITED_STATE = 4 * StateMap.BYTES_PER_SLOT + 16;
+    // Heap shared by the visited sets of all searches one Solver runs at once
+    private static final long HEAP_STATE_BUDGET = Runtime.getRuntime().maxMemory() / 2;
+    private Heuristic heuristic;
+    private int parallelism = Runtime.getRuntime().availableProcessors();
+    private int maxDepthPerSide = 10; // Search 10 moves from each side (20 total)
+    private long offHeapStates = Long.getLong("rubikscube.offheap", 0);
+    private boolean symmetryReduction = Boolean.parseBoolean(System.getProperty("rubikscube.symmetry", "false"));
+    private long timeoutMillis = Long.getLong("rubikscube.timeout", TIMEOUT_MS);
+    private OptimalSolver.Metric metric = OptimalSolver.Metric.parse(System.getProperty("rubikscube.metric", "htm"));
+    private SolutionCache cache = SolutionCache.fromSystemProperties();
+    // The last solve each thread ran, for the getters
+    private final ThreadLocal<Context> last = new ThreadLocal<>();
+    // Visited sets on the heap of the searches running now, see maxStatesPerSide()
+    private final AtomicInteger heapSides = new AtomicInteger();
+    
+    /**
+     * Solver whose IDA* uses the shared pattern databases
+     * (generated on first use, then cached on disk)
+     */
+    public Solver() {
+    }
+    
+    /**
+     * @param heuristic admissible estimate used to prune IDA*
+     */
+    public Solver(Heuristic heuristic) {
+        this.heuristic = heuristic;
+    }
+    
+    /**
+     * The search strategies solve() can run. CASCADE is the original
+     * bidirectional BFS, then IDA*, then simple BFS chain. OPTIMAL proves
+     * a shortest solution, see OptimalSolver.
+     */
+    public enum Strategy {
+        CASCADE, BIDIRECTIONAL, PARALLEL_BIDIRECTIONAL, IDA_STAR, PARALLEL_IDA_STAR, SIMPLE_BFS, TWO_PHASE, OPTIMAL;
+
+        /** Parses names like "two-phase" or "IDA_STAR". */
+        public static Strategy parse(String name) {
+            return valueOf(name.trim().toUpperCase(Locale.ROOT).replace('-', '_'));
+        }
+    }
     
     public static void main(String[] args) {
-        if (args.length != 2) {
+        if (args.length != 2 && args.length != 3) {
             System.exit(1);
         }
         
@@ -24,9 +80,29 @@ public class Solver {
         String outputFile = args[1];
         
         try {
+            Strategy strategy = args.length == 3 ? Strategy.parse(args[2]) : Strategy.CASCADE;
             RubiksCube cube = new RubiksCube(inputFile);
             Solver solver = new Solver();
-            String solution = solver.solve(cube);
+            String solution = solver.solve(cube, strategy);
+            
+            if (strategy == Strategy.TWO_PHASE) {
+                reportColdStart(TwoPhaseSolver.getTableStore());
+            }
+            Context context = solver.last.get();
+            if (context.optimalSearch != null) {
+                reportOptimality(context.optimalSearch);
+            }
+            if (context.searchFootprint > 0) {
+                reportFootprint(context);
+            }
+            if (solver.cache != null) {
+                solver.cache.save();
+                System.err.println(solver.cache);
+            }
+            String metricsTarget = System.getProperty("rubikscube.metrics");
+            if (metricsTarget != null) {
+                writeMetrics(metricsTarget, solver.getMetrics().toJson());
+            }
             
             try (PrintWriter writer = new PrintWriter(new FileWriter(outputFile))) {
                 if (solution != null) {
@@ -35,6 +111,12 @@ public class Solver {
                     writer.println("No solution found - timed out");
                 }
             }
+        } catch (IncorrectFormatException e) {
+            try (PrintWriter writer = new PrintWriter(new FileWriter(outputFile))) {
+                writer.println("Error: " + e.getMessage());
+            } catch (IOException ex) {
+                System.exit(1);
+            }
         } catch (Exception e) {
             try (PrintWriter writer = new PrintWriter(new FileWriter(outputFile))) {
                 writer.println("Error: Could not solve cube");
@@ -44,30 +126,261 @@ public class Solver {
         }
     }
     
+    /**
+     * @param threads worker threads for the parallel strategies
+     */
+    public void setParallelism(int threads) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("parallelism must be at least 1");
+        }
+        parallelism = threads;
+    }
+    
+    /**
+     * @param depth levels each side of the bidirectional searches may expand
+     */
+    public void setMaxDepthPerSide(int depth) {
+        if (depth < 1) {
+            throw new IllegalArgumentException("depth must be at least 1");
+        }
+        maxDepthPerSide = depth;
+    }
+    
+    /**
+     * @param states visited states per side to allocate outside the heap for
+     * bidirectionalSearch, or 0 to keep them on the heap; defaults to the
+     * rubikscube.offheap system property
+     */
+    public void setOffHeapCapacity(long states) {
+        if (states < 0 || states > OffHeapStateMap.MAX_CAPACITY) {
+            throw new IllegalArgumentException("capacity must be between 0 and " + OffHeapStateMap.MAX_CAPACITY);
+        }
+        offHeapStates = states;
+    }
+    
+    /**
+     * @param enabled whether bidirectionalSearch keeps one backward state per
+     * symmetry class (see Symmetry); defaults to the rubikscube.symmetry system property
+     */
+    public void setSymmetryReduction(boolean enabled) {
+        symmetryReduction = enabled;
+    }
+    
+    /**
+     * @param millis time budget of each solve; defaults to the rubikscube.timeout
+     * system property, or 10 seconds
+     */
+    public void setTimeout(long millis) {
+        if (millis < 1) {
+            throw new IllegalArgumentException("timeout must be at least 1 ms");
+        }
+        timeoutMillis = millis;
+    }
+    
+    /** @return time budget of each solve, in milliseconds */
+    public long getTimeout() {
+        return timeoutMillis;
+    }
+    
+    /**
+     * @param metric what a move costs in OPTIMAL mode; defaults to the
+     * rubikscube.metric system property (htm or qtm), or the half-turn metric
+     */
+    public void setMetric(OptimalSolver.Metric metric) {
+        this.metric = metric;
+    }
+    
+    /**
+     * @param cache where solutions are looked up before searching and
+     * stored after, or null for none; defaults to the one the
+     * rubikscube.cache and rubikscube.cache.file system properties describe
+     */
+    public void setCache(SolutionCache cache) {
+        this.cache = cache;
+    }
+    
+    public SolutionCache getCache() {
+        return cache;
+    }
+    
+    /**
+     * @return bytes held by the visited sets and frontiers of the last
+     * bidirectional search this thread ran
+     */
+    public long getSearchFootprint() {
+        Context context = last.get();
+        return context == null ? 0 : context.searchFootprint;
+    }
+    
+    /**
+     * Prints the memory held by a solve's bidirectional search to stderr
+     */
+    private static void reportFootprint(Context context) {
+        System.err.println("bidirectional search: " + context.searchStates + " states in "
+            + (context.searchFootprint >> 20) + " MB " + (context.searchOffHeap ? "off-heap" : "on heap"));
+    }
+    
+    /**
+     * Prints the length of the last optimal-mode solution and whether it is proven to stderr
+     */
+    private static void reportOptimality(OptimalSolver search) {
+        if (search.getLength() < 0) {
+            System.err.println("optimal: no solution, lower bound " + search.getLowerBound() + " " + search.getMetric());
+        } else if (search.isOptimal()) {
+            System.err.println("optimal: " + search.getLength() + " " + search.getMetric() + ", proven ("
+                + Moves.toStandardString(search.getMoves()) + ")");
+        } else {
+            System.err.println("optimal: best " + search.getLength() + " " + search.getMetric()
+                + ", lower bound " + search.getLowerBound() + " (" + Moves.toStandardString(search.getMoves()) + ")");
+        }
+    }
+    
+    /**
+     * Appends a JSON line to the named file, or prints it to stderr for "stderr"
+     */
+    static void writeMetrics(String target, String json) throws IOException {
+        if (target.equals("stderr")) {
+            System.err.println(json);
+            return;
+        }
+        try (PrintWriter writer = new PrintWriter(new FileWriter(target, true))) {
+            writer.println(json);
+        }
+    }
+    
+    /**
+     * Prints table loading time and JVM-start-to-solution latency to stderr
+     */
+    private static void reportColdStart(PruningTableStore store) {
+        long sinceJvmStart = System.currentTimeMillis() - ManagementFactory.getRuntimeMXBean().getStartTime();
+        System.err.println("tables: " + store.getMapped() + " mapped, " + store.getGenerated()
+            + " generated in " + store.getLoadMillis() + " ms (" + store.getDirectory() + "); "
+            + "cold start to first solve: " + sinceJvmStart + " ms");
+    }
+    
+    /**
+     * Loads or generates the tables strategy needs, once per JVM
+     */
+    public void warmUp(Strategy strategy) {
+        if (strategy == Strategy.TWO_PHASE || strategy == Strategy.OPTIMAL) {
+            TwoPhaseSolver.warmUp();
+        }
+        if (strategy == Strategy.CASCADE || strategy == Strategy.IDA_STAR
+                || strategy == Strategy.PARALLEL_IDA_STAR || strategy == Strategy.OPTIMAL) {
+            heuristic();
+        }
+    }
+    
     public String solve(RubiksCube cube) {
-        nodesExplored = 0;
-        startTime = System.currentTimeMillis();
-        timedOut = false;
+        return solve(cube, Strategy.CASCADE);
+    }
+    
+    /**
+     * Solves cube with a single strategy, within the configured timeout
+     */
+    public String solve(RubiksCube cube, Strategy strategy) {
+        // table generation is a one-off per JVM, not part of the search budget
+        warmUp(strategy);
+        return solve(cube, strategy, CancellationToken.withTimeout(timeoutMillis));
+    }
+    
+    /**
+     * Solves cube with a single strategy until it is solved or token expires;
+     * safe to call from several threads at once
+     */
+    public String solve(RubiksCube cube, Strategy strategy, CancellationToken token) {
+        warmUp(strategy);
+        
+        Context ctx = new Context(token, new SolveMetrics(strategy));
+        last.set(ctx);
         
         if (cube.isSolved()) {
+            ctx.metrics.finish(true, false);
             return "";
         }
         
+        SolutionCache cache = this.cache;
+        CubieCube start = cube.getCubieCube();
+        String kind = cacheKind(strategy);
+        if (cache != null) {
+            int[] cached = cache.get(start, kind);
+            if (cached != null) {
+                ctx.metrics.markCached();
+                ctx.metrics.finish(true, false);
+                return Moves.toString(cached, cached.length);
+            }
+        }
+        
+        String result = strategy == Strategy.CASCADE ? cascade(ctx, cube) : runPhase(ctx, strategy, cube);
+        ctx.metrics.finish(result != null, ctx.timedOut);
+        if (result == null) {
+            return null;
+        }
+        // the BFS strategies leave runs like "RRRR" where their two halves meet
+        int[] moves = MoveSequence.simplify(MoveSequence.parse(result));
+        if (cache != null && !ctx.timedOut) {
+            cache.put(start, kind, moves);
+        }
+        return Moves.toString(moves, moves.length);
+    }
+    
+    /**
+     * Solutions of different strategies, and of OPTIMAL in each metric, are
+     * cached apart; by name, since saved caches outlive the order of the enums
+     */
+    private String cacheKind(Strategy strategy) {
+        return strategy == Strategy.OPTIMAL ? strategy.name() + "_" + metric.name() : strategy.name();
+    }
+    
+    /**
+     * Runs one strategy, recording it as a phase of the solve's metrics
+     */
+    private String runPhase(Context ctx, Strategy strategy, RubiksCube cube) {
+        int nodesBefore = ctx.nodesExplored;
+        ctx.phase = ctx.metrics.begin(strategy);
+        String result = search(ctx, strategy, cube);
+        ctx.phase.nodes = ctx.nodesExplored - nodesBefore;
+        ctx.metrics.end(ctx.phase, result != null, ctx.timedOut);
+        return result;
+    }
+    
+    private String search(Context ctx, Strategy strategy, RubiksCube cube) {
+        switch (strategy) {
+            case BIDIRECTIONAL:
+                return bidirectionalSearch(ctx, cube);
+            case PARALLEL_BIDIRECTIONAL:
+                return parallelBidirectionalSearch(ctx, cube);
+            case IDA_STAR:
+                return idaStar(ctx, cube);
+            case PARALLEL_IDA_STAR:
+                return parallelIdaStar(ctx, cube);
+            case SIMPLE_BFS:
+                return simpleBFS(ctx, cube, 12);
+            case TWO_PHASE:
+                return twoPhase(ctx, cube);
+            case OPTIMAL:
+                return optimal(ctx, cube);
+            default:
+                throw new IllegalArgumentException("Not a single strategy: " + strategy);
+        }
+    }
+    
+    private String cascade(Context ctx, RubiksCube cube) {
         // Try bidirectional search
-        String result = bidirectionalSearch(cube);
+        String result = runPhase(ctx, Strategy.BIDIRECTIONAL, cube);
         
         if (result != null) {
             return result;
         }
         
-        if (timedOut) {
+        if (ctx.timedOut) {
             return null;
         }
         
         // If bidirectional fails, try IDA* (better than simple BFS for deep scrambles)
-        result = idaStar(cube);
+        result = runPhase(ctx, Strategy.IDA_STAR, cube);
         
-        if (timedOut) {
+        if (ctx.timedOut) {
             return null;
         }
         
@@ -76,35 +389,63 @@ public class Solver {
         }
         
         // Last resort: simple BFS with lower depth
-        result = simpleBFS(cube, 12);
+        result = runPhase(ctx, Strategy.SIMPLE_BFS, cube);
         
-        if (timedOut) {
+        if (ctx.timedOut) {
             return null;
         }
         
         return result;
     }
     
-    private boolean checkTimeout() {
-        if (System.currentTimeMillis() - startTime > TIMEOUT_MS) {
-            timedOut = true;
-            return true;
-        }
-        return false;
+    /**
+     * Two-phase search, see TwoPhaseSolver
+     */
+    private String twoPhase(Context ctx, RubiksCube cube) {
+        TwoPhaseSolver twoPhase = new TwoPhaseSolver();
+        String result = twoPhase.solve(cube.getCubieCube(), TwoPhaseSolver.DEFAULT_MAX_LENGTH, ctx.token);
+        ctx.nodesExplored += (int) Math.min(Integer.MAX_VALUE, twoPhase.getNodesExplored());
+        ctx.phase.iterations = twoPhase.getIterations();
+        ctx.phase.heuristicCalls = twoPhase.getHeuristicCalls();
+        ctx.timedOut = twoPhase.timedOut();
+        return result;
+    }
+    
+    /**
+     * Shortest solution in the configured metric, or the best one found
+     * within the timeout, see OptimalSolver
+     */
+    private String optimal(Context ctx, RubiksCube cube) {
+        OptimalSolver search = new OptimalSolver(heuristic(), metric);
+        String result = search.solve(cube.getCubieCube(), ctx.token);
+        ctx.nodesExplored += (int) Math.min(Integer.MAX_VALUE, search.getNodesExplored());
+        ctx.phase.iterations = search.getIterations();
+        ctx.phase.heuristicCalls = search.getHeuristicCalls();
+        ctx.timedOut = search.timedOut();
+        ctx.optimalSearch = search;
+        return result;
     }
     
     /**
      * IDA* search - memory efficient for deep searches
+     * Searches over all 18 face turns (half-turn metric), so the pattern
+     * database bounds are tight and 20 moves is always enough
      */
-    private String idaStar(RubiksCube cube) {
-        int threshold = getHeuristic(cube);
+    private String idaStar(Context ctx, RubiksCube cube) {
+        int threshold = heuristic().estimate(cube.cubieState());
+        ctx.phase.heuristicCalls++;
+        // With the pattern databases, search their entry indices instead of the cube
+        IndexedSearch indexed = heuristic() instanceof PatternDatabaseHeuristic
+            ? new IndexedSearch(ctx, (PatternDatabaseHeuristic) heuristic(), cube.getCubieCube())
+            : null;
         
         while (threshold <= 20) {
-            if (checkTimeout()) {
+            if (ctx.checkTimeout()) {
                 return null;
             }
             
-            String result = idaSearch(cube, 0, threshold, ' ', "");
+            ctx.phase.iterations++;
+            String result = indexed != null ? indexed.search(threshold) : idaSearch(ctx, cube, 0, threshold, -1, "");
             
             if (result != null) {
                 return result;
@@ -116,11 +457,24 @@ public class Solver {
         return null;
     }
     
+    /**
+     * IDA* split across parallelism threads, see ParallelIdaStar
+     */
+    private String parallelIdaStar(Context ctx, RubiksCube cube) {
+        ParallelIdaStar search = new ParallelIdaStar(heuristic(), parallelism);
+        String result = search.solve(cube.getCubieCube(), ctx.token);
+        ctx.nodesExplored += (int) Math.min(Integer.MAX_VALUE, search.getNodesExplored());
+        ctx.phase.iterations = search.getIterations();
+        ctx.phase.heuristicCalls = search.getHeuristicCalls();
+        ctx.timedOut = search.timedOut();
+        return result;
+    }
+    
     /**
      * Recursive IDA* search
      */
-    private String idaSearch(RubiksCube cube, int g, int threshold, char lastMove, String path) {
-        if (checkTimeout()) {
+    private String idaSearch(Context ctx, RubiksCube cube, int g, int threshold, int lastMove, String path) {
+        if (ctx.checkTimeout()) {
             return null;
         }
         
@@ -128,148 +482,112 @@ public class Solver {
             return path;
         }
         
-        int h = getHeuristic(cube);
+        int h = heuristic().estimate(cube.cubieState());
+        ctx.phase.heuristicCalls++;
         int f = g + h;
         
         if (f > threshold) {
             return null;
         }
         
-        nodesExplored++;
-        
-        String originalState = cube.toString();
+        ctx.nodesExplored++;
         
-        for (char move : ALL_MOVES) {
-            if (shouldPruneMove(move, path)) {
+        for (int move = 0; move < Moves.COUNT; move++) {
+            // one turn per face in a row, opposite faces in one order
+            if (lastMove >= 0 && MoveSequence.redundant(lastMove, move)) {
                 continue;
             }
             
-            cube.applyMoves(String.valueOf(move));
-            String result = idaSearch(cube, g + 1, threshold, move, path + move);
+            cube.applyMove(move);
+            String result = idaSearch(ctx, cube, g + 1, threshold, move, path + Moves.toString(move));
             
             if (result != null) {
                 return result;
             }
             
-            // Restore
-            restoreCube(cube, originalState);
+            cube.undoMove(move);
         }
         
         return null;
     }
     
-    /**
-     * Heuristic function - estimates moves to solve
-     * Improved version that considers corners and edges separately
-     */
-    private int getHeuristic(RubiksCube cube) {
-        String state = cube.toString();
-        String[] lines = state.split("\n");
-        
-        int wrongCorners = 0;
-        int wrongEdges = 0;
-        
-        // Check corners (8 corners, 3 stickers each)
-        // Top corners
-        if (lines[0].charAt(3) != 'O') wrongCorners++;
-        if (lines[0].charAt(5) != 'O') wrongCorners++;
-        if (lines[2].charAt(3) != 'O') wrongCorners++;
-        if (lines[2].charAt(5) != 'O') wrongCorners++;
-        
-        // Bottom corners
-        if (lines[6].charAt(3) != 'R') wrongCorners++;
-        if (lines[6].charAt(5) != 'R') wrongCorners++;
-        if (lines[8].charAt(3) != 'R') wrongCorners++;
-        if (lines[8].charAt(5) != 'R') wrongCorners++;
-        
-        // Check edges (12 edges, 2 stickers each)
-        // Top edges
-        if (lines[0].charAt(4) != 'O') wrongEdges++;
-        if (lines[1].charAt(3) != 'O') wrongEdges++;
-        if (lines[1].charAt(5) != 'O') wrongEdges++;
-        if (lines[2].charAt(4) != 'O') wrongEdges++;
-        
-        // Middle edges
-        if (lines[3].charAt(1) != 'G') wrongEdges++;
-        if (lines[3].charAt(4) != 'W') wrongEdges++;
-        if (lines[3].charAt(7) != 'B') wrongEdges++;
-        if (lines[3].charAt(10) != 'Y') wrongEdges++;
-        
-        // Bottom edges
-        if (lines[6].charAt(4) != 'R') wrongEdges++;
-        if (lines[7].charAt(3) != 'R') wrongEdges++;
-        if (lines[7].charAt(5) != 'R') wrongEdges++;
-        if (lines[8].charAt(4) != 'R') wrongEdges++;
-        
-        // Corners need at least wrongCorners/4 moves (4 corners per move)
-        // Edges need at least wrongEdges/4 moves (4 edges per move)
-        int cornerEstimate = (wrongCorners + 3) / 4;
-        int edgeEstimate = (wrongEdges + 3) / 4;
-        
-        return Math.max(cornerEstimate, edgeEstimate);
+    private Heuristic heuristic() {
+        if (heuristic == null) {
+            heuristic = PatternDatabaseHeuristic.shared();
+        }
+        return heuristic;
     }
     
     /**
-     * Restore cube state
+     * Simple BFS - guaranteed to find solution
      */
-    private void restoreCube(RubiksCube cube, String state) {
+    private String simpleBFS(Context ctx, RubiksCube cube, int maxDepth) {
+        heapSides.incrementAndGet();
         try {
-            String[] lines = state.split("\n");
-            java.lang.reflect.Field field = RubiksCube.class.getDeclaredField("cube");
-            field.setAccessible(true);
-            field.set(cube, lines);
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to restore cube", e);
+            return simpleBFS(ctx, cube.getCubieCube(), maxDepth);
+        } finally {
+            heapSides.decrementAndGet();
         }
     }
     
-    /**
-     * Simple BFS - guaranteed to find solution
-     */
-    private String simpleBFS(RubiksCube cube, int maxDepth) {
-        Queue<SearchNode> queue = new LinkedList<>();
-        Set<String> visited = new HashSet<>();
+    private String simpleBFS(Context ctx, CubieCube start, int maxDepth) {
+        StateMap visited = new StateMap();
+        StateList frontier = new StateList();
         
-        String startState = cube.toString();
-        visited.add(startState);
-        queue.offer(new SearchNode(startState, ""));
+        visited.putIfAbsent(start.corners, start.edges, StateMap.ROOT);
+        frontier.add(start.corners, start.edges);
         
-        while (!queue.isEmpty()) {
-            if (checkTimeout()) {
-                return null;
-            }
+        // Each chunk of the frontier is expanded one move at a time across the whole chunk
+        CubeBatch batch = new CubeBatch(BFS_BATCH);
+        CubeBatch children = new CubeBatch(BFS_BATCH);
+        for (int depth = 0; depth <= maxDepth && frontier.size() > 0; depth++) {
+            StateList next = new StateList();
+            ctx.phase.iterations++;
             
-            SearchNode node = queue.poll();
-            
-            if (node.path.length() > maxDepth) {
-                continue;
-            }
-            
-            RubiksCube tempCube = stringToCube(node.state);
-            
-            if (tempCube.isSolved()) {
-                return node.path;
-            }
-            
-            nodesExplored++;
-            
-            // Try all moves
-            for (char move : ALL_MOVES) {
-                if (shouldPruneMove(move, node.path)) {
-                    continue;
+            for (int from = 0; from < frontier.size(); from += BFS_BATCH) {
+                // Give up before running out of memory
+                if (visited.size() > maxStatesPerSide() - ALL_MOVES.length * BFS_BATCH) {
+                    ctx.phase.peak(next.size(), visited.size());
+                    return null;
                 }
                 
-                tempCube.applyMoves(String.valueOf(move));
-                String newState = tempCube.toString();
+                batch.clear();
+                int to = Math.min(frontier.size(), from + BFS_BATCH);
+                for (int i = from; i < to; i++) {
+                    if (ctx.checkTimeout()) {
+                        return null;
+                    }
+                    
+                    long c = frontier.corners(i);
+                    long e = frontier.edges(i);
+                    
+                    if (c == CubieCube.SOLVED_CORNERS && e == CubieCube.SOLVED_EDGES) {
+                        return visited.path(c, e);
+                    }
+                    
+                    ctx.nodesExplored++;
+                    batch.add(c, e);
+                }
                 
-                if (!visited.contains(newState)) {
-                    visited.add(newState);
-                    queue.offer(new SearchNode(newState, node.path + move));
+                if (depth == maxDepth) {
+                    continue;
                 }
                 
-                // Restore
-                tempCube = stringToCube(node.state);
+                // Try all moves
+                for (char move : ALL_MOVES) {
+                    int turn = Moves.quarterTurn(move);
+                    batch.move(turn, children);
+                    
+                    for (int j = 0; j < children.size(); j++) {
+                        if (visited.putIfAbsent(children.corners(j), children.edges(j), (byte) turn)) {
+                            next.add(children.corners(j), children.edges(j));
+                        }
+                    }
+                }
             }
+            
+            ctx.phase.peak(next.size(), visited.size());
+            frontier = next;
         }
         
         return null;
@@ -277,133 +595,348 @@ public class Solver {
     
     /**
      * Bidirectional search - meet in the middle
+     * Visited states are packed cubies holding only the parent move, on the
+     * heap up to maxStatesPerSide() or off-heap up to offHeapStates per side
      */
-    private String bidirectionalSearch(RubiksCube cube) {
+    private String bidirectionalSearch(Context ctx, RubiksCube cube) {
+        boolean offHeap = offHeapStates > 0;
+        if (offHeap) {
+            return bidirectionalSearch(ctx, cube, true);
+        }
+        heapSides.addAndGet(2);
+        try {
+            return bidirectionalSearch(ctx, cube, false);
+        } finally {
+            heapSides.addAndGet(-2);
+        }
+    }
+    
+    private String bidirectionalSearch(Context ctx, RubiksCube cube, boolean offHeap) {
+        
         // Forward from scrambled
-        Map<String, String> forwardMap = new HashMap<>();
-        Queue<SearchNode> forwardQueue = new LinkedList<>();
+        VisitedStates forwardMap = offHeap ? new OffHeapStateMap(offHeapStates) : new StateMap();
+        Frontier forwardFrontier = offHeap ? new OffHeapStateList() : new StateList();
+        Frontier forwardNext = offHeap ? new OffHeapStateList() : new StateList();
         
-        String startState = cube.toString();
-        forwardMap.put(startState, "");
-        forwardQueue.offer(new SearchNode(startState, ""));
+        CubieCube start = cube.getCubieCube();
+        forwardMap.putIfAbsent(start.corners, start.edges, StateMap.ROOT);
+        forwardFrontier.add(start.corners, start.edges);
         
         // Backward from solved
-        Map<String, String> backwardMap = new HashMap<>();
-        Queue<SearchNode> backwardQueue = new LinkedList<>();
-        
-        RubiksCube solvedCube = new RubiksCube();
-        String solvedState = solvedCube.toString();
-        backwardMap.put(solvedState, "");
-        backwardQueue.offer(new SearchNode(solvedState, ""));
+        VisitedStates backwardMap = offHeap ? new OffHeapStateMap(offHeapStates) : new StateMap();
+        if (symmetryReduction) {
+            // rooted at the solved cube, so one state per symmetry class is enough
+            backwardMap = new SymmetricStateMap(backwardMap);
+        }
+        Frontier backwardFrontier = offHeap ? new OffHeapStateList() : new StateList();
+        Frontier backwardNext = offHeap ? new OffHeapStateList() : new StateList();
         
-        int maxDepthPerSide = 10; // Search 10 moves from each side (20 total)
+        backwardMap.putIfAbsent(CubieCube.SOLVED_CORNERS, CubieCube.SOLVED_EDGES, StateMap.ROOT);
+        backwardFrontier.add(CubieCube.SOLVED_CORNERS, CubieCube.SOLVED_EDGES);
         
-        for (int depth = 0; depth < maxDepthPerSide; depth++) {
-            if (checkTimeout()) {
-                return null;
-            }
-            
-            // Expand forward one level
-            int forwardSize = forwardQueue.size();
-            for (int i = 0; i < forwardSize; i++) {
-                if (checkTimeout()) {
+        try {
+            for (int depth = 0; depth < maxDepthPerSide; depth++) {
+                if (ctx.checkTimeout()) {
                     return null;
                 }
                 
-                SearchNode node = forwardQueue.poll();
-                if (node == null) continue;
+                // Expand forward one level
+                forwardNext.clear();
+                String solution = expandLayer(ctx, forwardFrontier, forwardNext, forwardMap, backwardMap,
+                                              true, cube, offHeap);
+                if (solution != null || ctx.timedOut) {
+                    return solution;
+                }
+                Frontier swap = forwardFrontier;
+                forwardFrontier = forwardNext;
+                forwardNext = swap;
                 
-                RubiksCube tempCube = stringToCube(node.state);
+                // Expand backward one level
+                backwardNext.clear();
+                solution = expandLayer(ctx, backwardFrontier, backwardNext, backwardMap, forwardMap,
+                                       false, cube, offHeap);
+                if (solution != null || ctx.timedOut) {
+                    return solution;
+                }
+                swap = backwardFrontier;
+                backwardFrontier = backwardNext;
+                backwardNext = swap;
+                ctx.phase.iterations++;
                 
+                // Early termination if search spaces get too large
+                int maxStates = stateCap(offHeap);
+                if (forwardMap.size() > maxStates || backwardMap.size() > maxStates) {
+                    return null;
+                }
+            }
+        } finally {
+            ctx.searchFootprint = forwardMap.footprint() + backwardMap.footprint()
+                + forwardFrontier.footprint() + forwardNext.footprint()
+                + backwardFrontier.footprint() + backwardNext.footprint();
+            ctx.searchStates = (long) forwardMap.size() + backwardMap.size();
+            ctx.searchOffHeap = offHeap;
+            // the level being expanded when the search stopped may be the largest
+            ctx.phase.peak(Math.max(forwardFrontier.size(), forwardNext.size())
+                           + Math.max(backwardFrontier.size(), backwardNext.size()),
+                       forwardMap.size() + backwardMap.size());
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Expands one layer of one side of the bidirectional search into next,
+     * stopping early once ownMap holds more than stateCap(offHeap)
+     * Returns a verified solution if the two sides meet
+     */
+    private String expandLayer(Context ctx, Frontier frontier, Frontier next, VisitedStates ownMap, VisitedStates otherMap,
+                               boolean forward, RubiksCube originalCube, boolean offHeap) {
+        CubieCube tempCube = new CubieCube();
+        CubieCube imageCube = new CubieCube();
+        
+        for (int i = 0; i < frontier.size(); i++) {
+            if (ctx.checkTimeout() || ownMap.size() > stateCap(offHeap)) {
+                return null;
+            }
+            
+            // A reduced backward state stands for its whole class, whose neighbours are
+            // those of the state and of its mirrored inverse (see Symmetry.canonical)
+            int bases = !forward && symmetryReduction ? 2 : 1;
+            for (int b = 0; b < bases; b++) {
+                long baseCorners = frontier.corners(i);
+                long baseEdges = frontier.edges(i);
+                if (b == 1) {
+                    Symmetry.image(baseCorners, baseEdges, Symmetry.ROTATIONS, imageCube);
+                    baseCorners = imageCube.corners;
+                    baseEdges = imageCube.edges;
+                }
+                    
                 for (char move : ALL_MOVES) {
-                    if (shouldPruneMove(move, node.path)) {
-                        continue;
-                    }
+                    int turn = Moves.quarterTurn(move);
+                    tempCube.set(baseCorners, baseEdges);
+                    tempCube.move(turn);
+                    long c = tempCube.corners;
+                    long e = tempCube.edges;
                     
-                    tempCube.applyMoves(String.valueOf(move));
-                    String newState = tempCube.toString();
-                    String newPath = node.path + move;
+                    if (ownMap.putIfAbsent(c, e, (byte) turn)) {
+                        next.add(c, e);
                     
-                    if (!forwardMap.containsKey(newState)) {
-                        forwardMap.put(newState, newPath);
-                        forwardQueue.offer(new SearchNode(newState, newPath));
-                        
-                        // Check if backward has this state
-                        if (backwardMap.containsKey(newState)) {
-                            String backPath = backwardMap.get(newState);
-                            String solution = newPath + invertMoveSequence(backPath);
-                            
-                            // VERIFY the solution before returning
-                            if (verifySolution(cube, solution)) {
-                                return solution;
+                        String solution = meet(c, e, ownMap, otherMap, forward, originalCube);
+                        if (solution != null) {
+                            return solution;
+                        }
+                    
+                        // A reduced backward side stands for every image of the new state
+                        if (!forward && symmetryReduction) {
+                            for (int s = 1; s < Symmetry.COUNT; s++) {
+                                Symmetry.image(c, e, s, imageCube);
+                                solution = meet(imageCube.corners, imageCube.edges, ownMap, otherMap, false, originalCube);
+                                if (solution != null) {
+                                    return solution;
+                                }
                             }
                         }
                     }
-                    
-                    tempCube = stringToCube(node.state);
                 }
-                
-                nodesExplored++;
             }
             
-            // Expand backward one level
-            int backwardSize = backwardQueue.size();
-            for (int i = 0; i < backwardSize; i++) {
-                if (checkTimeout()) {
+            ctx.nodesExplored++;
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Returns a verified solution through (c, e) if the other side has it
+     */
+    private String meet(long c, long e, VisitedStates ownMap, VisitedStates otherMap,
+                        boolean forward, RubiksCube originalCube) {
+        if (!otherMap.contains(c, e)) {
+            return null;
+        }
+        String solution = forward
+            ? ownMap.path(c, e) + invertMoveSequence(otherMap.path(c, e))
+            : otherMap.path(c, e) + invertMoveSequence(ownMap.path(c, e));
+        
+        // VERIFY the solution before returning
+        return verifySolution(originalCube, solution) ? solution : null;
+    }
+    
+    /**
+     * Level-synchronous parallel version of bidirectionalSearch
+     * Each layer's frontier is split into chunks that parallelism threads
+     * expand into striped visited maps; while one side expands, the
+     * other side's map is read-only, so the meet check runs in the same pass.
+     * Paths are only rebuilt once the layer is done and no thread is still
+     * adding states
+     */
+    private String parallelBidirectionalSearch(Context ctx, RubiksCube cube) {
+        heapSides.addAndGet(2);
+        try {
+            return parallelBidirectionalSearch(ctx, cube, new ForkJoinPool(parallelism));
+        } finally {
+            heapSides.addAndGet(-2);
+        }
+    }
+    
+    private String parallelBidirectionalSearch(Context ctx, RubiksCube cube, ForkJoinPool pool) {
+        StripedStateMap forwardMap = new StripedStateMap();
+        StateList forwardFrontier = new StateList();
+        
+        CubieCube start = cube.getCubieCube();
+        forwardMap.putIfAbsent(start.corners, start.edges, StateMap.ROOT);
+        forwardFrontier.add(start.corners, start.edges);
+        
+        StripedStateMap backwardMap = new StripedStateMap();
+        StateList backwardFrontier = new StateList();
+        
+        backwardMap.putIfAbsent(CubieCube.SOLVED_CORNERS, CubieCube.SOLVED_EDGES, StateMap.ROOT);
+        backwardFrontier.add(CubieCube.SOLVED_CORNERS, CubieCube.SOLVED_EDGES);
+        
+        AtomicReference<String> solution = new AtomicReference<>();
+        
+        try {
+            for (int depth = 0; depth < maxDepthPerSide; depth++) {
+                if (ctx.checkTimeout()) {
                     return null;
                 }
                 
-                SearchNode node = backwardQueue.poll();
-                if (node == null) continue;
+                forwardFrontier = expandLayer(ctx, pool, forwardFrontier, forwardMap, backwardMap,
+                                              true, cube, solution);
+                if (solution.get() != null || ctx.timedOut) {
+                    return solution.get();
+                }
                 
-                RubiksCube tempCube = stringToCube(node.state);
+                backwardFrontier = expandLayer(ctx, pool, backwardFrontier, backwardMap, forwardMap,
+                                               false, cube, solution);
+                if (solution.get() != null || ctx.timedOut) {
+                    return solution.get();
+                }
                 
-                for (char move : ALL_MOVES) {
-                    if (shouldPruneMove(move, node.path)) {
-                        continue;
+                ctx.phase.iterations++;
+                ctx.phase.peak(forwardFrontier.size() + backwardFrontier.size(),
+                           forwardMap.size() + backwardMap.size());
+                
+                int maxStates = maxStatesPerSide();
+                if (forwardMap.size() > maxStates || backwardMap.size() > maxStates) {
+                    return null;
+                }
+            }
+        } finally {
+            pool.shutdownNow();
+        }
+        
+        return null;
+    }
+    
+    /**
+     * Expands one frontier layer in parallel and returns the next one,
+     * stopping early once ownMap holds more than maxStatesPerSide()
+     */
+    private StateList expandLayer(Context ctx, ForkJoinPool pool, StateList frontier,
+                                  StripedStateMap ownMap, StripedStateMap otherMap,
+                                  boolean forward, RubiksCube originalCube,
+                                  AtomicReference<String> solution) {
+        int chunks = Math.max(1, Math.min(frontier.size(), parallelism * 4));
+        int chunkSize = (frontier.size() + chunks - 1) / chunks;
+        AtomicInteger expanded = new AtomicInteger();
+        // states where the two sides met, as {corners, edges}
+        List<long[]> meets = Collections.synchronizedList(new ArrayList<>());
+        List<Callable<StateList>> tasks = new ArrayList<>();
+        
+        for (int from = 0; from < frontier.size(); from += chunkSize) {
+            int first = from;
+            int last = Math.min(frontier.size(), from + chunkSize);
+            tasks.add(() -> {
+                StateList next = new StateList();
+                CubieCube tempCube = new CubieCube();
+                // each task keeps its own count, the context's is not thread-safe
+                int clockCountdown = CancellationToken.NODES_BETWEEN_CHECKS;
+                for (int i = first; i < last; i++) {
+                    if (--clockCountdown == 0) {
+                        clockCountdown = CancellationToken.NODES_BETWEEN_CHECKS;
+                        if (ctx.token.expired()) {
+                            ctx.timedOut = true;
+                        }
+                    }
+                    if (!meets.isEmpty() || ctx.timedOut || ownMap.size() > maxStatesPerSide()) {
+                        break;
                     }
                     
-                    tempCube.applyMoves(String.valueOf(move));
-                    String newState = tempCube.toString();
-                    String newPath = node.path + move;
-                    
-                    if (!backwardMap.containsKey(newState)) {
-                        backwardMap.put(newState, newPath);
-                        backwardQueue.offer(new SearchNode(newState, newPath));
+                    for (char move : ALL_MOVES) {
+                        int turn = Moves.quarterTurn(move);
+                        tempCube.set(frontier.corners(i), frontier.edges(i));
+                        tempCube.move(turn);
+                        long c = tempCube.corners;
+                        long e = tempCube.edges;
                         
-                        // Check if forward has this state
-                        if (forwardMap.containsKey(newState)) {
-                            String forwardPath = forwardMap.get(newState);
-                            String solution = forwardPath + invertMoveSequence(newPath);
+                        if (ownMap.putIfAbsent(c, e, (byte) turn)) {
+                            next.add(c, e);
                             
-                            // VERIFY the solution before returning
-                            if (verifySolution(cube, solution)) {
-                                return solution;
+                            if (otherMap.contains(c, e)) {
+                                // other threads may be growing this side's stripes,
+                                // so the path waits until the layer is done
+                                meets.add(new long[] {c, e});
                             }
                         }
                     }
                     
-                    tempCube = stringToCube(node.state);
+                    expanded.incrementAndGet();
                 }
-                
-                nodesExplored++;
-            }
-            
-            // Early termination if search spaces get too large
-            if (forwardMap.size() > 300000 || backwardMap.size() > 300000) {
-                return null;
+                return next;
+            });
+        }
+        
+        StateList nextFrontier = new StateList();
+        for (Future<StateList> result : pool.invokeAll(tasks)) {
+            try {
+                nextFrontier.addAll(result.get());
+            } catch (InterruptedException | ExecutionException e) {
+                throw new RuntimeException("Frontier expansion failed", e);
             }
         }
+        ctx.nodesExplored += expanded.get();
         
-        return null;
+        for (long[] meet : meets) {
+            String candidate = meet(meet[0], meet[1], ownMap, otherMap, forward, originalCube);
+            if (candidate != null) {
+                solution.compareAndSet(null, candidate);
+                break;
+            }
+        }
+        return nextFrontier;
+    }
+    
+    /**
+     * How many visited states one side of a search on the heap may hold now.
+     * The searches this Solver runs at once share half the heap, a quarter
+     * per side when a single bidirectional search runs, so the cap shrinks
+     * while others start and grows back as they end; searches check it as
+     * they go and give up once over it
+     */
+    private int maxStatesPerSide() {
+        long budget = HEAP_STATE_BUDGET / Math.max(1, heapSides.get());
+        return (int) Math.min(Integer.MAX_VALUE / 4, budget / BYTES_PER_VISITED_STATE);
+    }
+    
+    /**
+     * The size past which bidirectionalSearch stops expanding one side,
+     * short of its cap by what expanding one more state can add: with
+     * symmetry reduction a backward state also expands its mirrored inverse
+     */
+    private int stateCap(boolean offHeap) {
+        int perState = ALL_MOVES.length * (symmetryReduction ? 2 : 1);
+        return (offHeap ? (int) offHeapStates : maxStatesPerSide()) - perState;
     }
     
     /**
      * Verify that a solution actually solves the cube
      */
     private boolean verifySolution(RubiksCube originalCube, String solution) {
-        RubiksCube testCube = stringToCube(originalCube.toString());
-        testCube.applyMoves(solution);
+        CubieCube testCube = originalCube.getCubieCube();
+        for (int i = 0; i < solution.length(); i++) {
+            testCube.move(Moves.quarterTurn(solution.charAt(i)));
+        }
         return testCube.isSolved();
     }
     
@@ -427,61 +960,123 @@ public class Solver {
         return inverted.toString();
     }
     
+    /** @return nodes expanded by the last solve this thread ran */
+    public int getNodesExplored() {
+        Context context = last.get();
+        return context == null ? 0 : context.nodesExplored;
+    }
+    
+    /** @return per-phase metrics of the last solve this thread ran, or null before the first */
+    public SolveMetrics getMetrics() {
+        Context context = last.get();
+        return context == null ? null : context.metrics;
+    }
+    
     /**
-     * Advanced move pruning - avoid redundant sequences
-     * MINIMAL PRUNING - only prune moves that are clearly redundant
+     * IDA* over the entry indices of the three pattern databases rather than
+     * the cube: a move is three move-table reads, the estimate three
+     * distance reads, and backtracking just drops the child's indices. The
+     * two edge databases cover all 12 edges, so the cube is solved exactly
+     * when all three indices are.
      */
-    private boolean shouldPruneMove(char move, String path) {
-        if (path.length() == 0) return false;
+    private static class IndexedSearch {
+        private final Context ctx;
+        private final PatternDatabase corners;
+        private final PatternDatabase firstEdges;
+        private final PatternDatabase secondEdges;
+        private final int corner;
+        private final int first;
+        private final int second;
+        private final int[] path = new int[21];
+        private int pathLength;
+        private int threshold;
         
-        char lastMove = path.charAt(path.length() - 1);
+        IndexedSearch(Context ctx, PatternDatabaseHeuristic heuristic, CubieCube cube) {
+            this.ctx = ctx;
+            corners = heuristic.corners();
+            firstEdges = heuristic.firstEdges();
+            secondEdges = heuristic.secondEdges();
+            corner = corners.index(cube);
+            first = firstEdges.index(cube);
+            second = secondEdges.index(cube);
+        }
+        
+        /** @return a solution within threshold moves, or null */
+        String search(int threshold) {
+            this.threshold = threshold;
+            return search(corner, first, second, 0, -1) ? Moves.toString(path, pathLength) : null;
+        }
         
-        // Only prune if same move appears 4+ times in a row
-        // (since UUUU = identity, doing it 4 times does nothing)
-        if (move == lastMove) {
-            int count = 1;
-            for (int i = path.length() - 1; i >= 0 && path.charAt(i) == move; i--) {
-                count++;
+        private boolean search(int corner, int first, int second, int g, int lastMove) {
+            if (ctx.checkTimeout()) {
+                return false;
             }
-            // Allow up to 3 repetitions, prune the 4th
-            if (count >= 3) {
+            
+            if (corner == corners.solvedIndex() && first == firstEdges.solvedIndex()
+                    && second == secondEdges.solvedIndex()) {
+                pathLength = g;
                 return true;
             }
+            
+            int h = Math.max(corners.distance(corner),
+                Math.max(firstEdges.distance(first), secondEdges.distance(second)));
+            ctx.phase.heuristicCalls++;
+            if (g + h > threshold) {
+                return false;
+            }
+            
+            ctx.nodesExplored++;
+            
+            for (int move = 0; move < Moves.COUNT; move++) {
+                if (lastMove >= 0 && MoveSequence.redundant(lastMove, move)) {
+                    continue;
+                }
+                path[g] = move;
+                if (search(corners.move(corner, move), firstEdges.move(first, move),
+                        secondEdges.move(second, move), g + 1, move)) {
+                    return true;
+                }
+            }
+            return false;
         }
-        
-        return false;
     }
     
     /**
-     * Convert string to cube
+     * Everything one solve changes, so solves on different threads share
+     * nothing but the Solver's heap budget for visited states
      */
-    private RubiksCube stringToCube(String state) {
-        try {
-            RubiksCube cube = new RubiksCube();
-            String[] lines = state.split("\n");
-            java.lang.reflect.Field field = RubiksCube.class.getDeclaredField("cube");
-            field.setAccessible(true);
-            field.set(cube, lines);
-            return cube;
-        } catch (Exception e) {
-            throw new RuntimeException("Failed to create cube", e);
+    private static class Context {
+        final CancellationToken token;
+        final SolveMetrics metrics;
+        // The strategy running now
+        SolveMetrics.Phase phase;
+        int nodesExplored;
+        volatile boolean timedOut;
+        private int clockCountdown = CancellationToken.NODES_BETWEEN_CHECKS;
+        // Memory held by the bidirectional search, for reporting
+        long searchFootprint;
+        long searchStates;
+        boolean searchOffHeap;
+        // The optimal-mode search, for reporting its bounds
+        OptimalSolver optimalSearch;
+        
+        Context(CancellationToken token, SolveMetrics metrics) {
+            this.token = token;
+            this.metrics = metrics;
         }
-    }
-    
-    public int getNodesExplored() {
-        return nodesExplored;
-    }
-    
-    /**
-     * Search node for BFS
-     */
-    private static class SearchNode {
-        String state;
-        String path;
         
-        SearchNode(String state, String path) {
-            this.state = state;
-            this.path = path;
+        /**
+         * Whether the token has expired, reading the clock only every
+         * CancellationToken.NODES_BETWEEN_CHECKS calls; single-threaded
+         */
+        boolean checkTimeout() {
+            if (--clockCountdown <= 0) {
+                clockCountdown = CancellationToken.NODES_BETWEEN_CHECKS;
+                if (token.expired()) {
+                    timedOut = true;
+                }
+            }
+            return timedOut;
         }
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,65 @@
+package rubikscube;
+
+import java.util.Arrays;
+
+/**
+ * Growable list of packed cube states, used for BFS frontiers.
+ */
+public class StateList implements Frontier {
+
+    private long[] corners;
+    private long[] edges;
+    private int size;
+
+    public StateList() {
+        this(16);
+    }
+
+    public StateList(int capacity) {
+        corners = new long[Math.max(capacity, 1)];
+        edges = new long[Math.max(capacity, 1)];
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public void clear() {
+        size = 0;
+    }
+
+    @Override
+    public long footprint() {
+        return (long) corners.length * 16;
+    }
+
+    @Override
+    public void add(long c, long e) {
+        if (size == corners.length) {
+            corners = Arrays.copyOf(corners, size * 2);
+            edges = Arrays.copyOf(edges, size * 2);
+        }
+        corners[size] = c;
+        edges[size] = e;
+        size++;
+    }
+
+    /** Appends every state of other. */
+    public void addAll(StateList other) {
+        for (int i = 0; i < other.size; i++) {
+            add(other.corners[i], other.edges[i]);
+        }
+    }
+
+    @Override
+    public long corners(int i) {
+        return corners[i];
+    }
+
+    @Override
+    public long edges(int i) {
+        return edges[i];
+    }
+}
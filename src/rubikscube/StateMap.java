@@ -0,0 +1,119 @@
+package rubikscube;
+
+/**
+ * Open-addressing hash map from a packed cube state (corners, edges) to the
+ * move that first reached it, for breadth-first searches.
+ *
+ * Keys live in two long arrays and values in a byte array, 17 bytes per slot,
+ * instead of a String key, a String path and a HashMap node per state. Paths
+ * are not stored: walk the parent moves back with path() instead.
+ *
+ * Not thread-safe; see StripedStateMap for concurrent use.
+ */
+public class StateMap implements VisitedStates {
+
+    /** Bytes used per slot, for sizing against the heap. */
+    public static final int BYTES_PER_SLOT = 17;
+
+    // Packed corners use 40 bits, so the top bit marks a slot as used
+    private static final long USED = 1L << 63;
+    private static final int MIN_CAPACITY = 16;
+
+    private long[] corners;
+    private long[] edges;
+    private byte[] moves;
+    private int size;
+    private int mask;
+
+    public StateMap() {
+        this(MIN_CAPACITY);
+    }
+
+    /**
+     * @param expected number of states expected, to avoid early resizing
+     */
+    public StateMap(int expected) {
+        int capacity = MIN_CAPACITY;
+        while (capacity < expected * 2) {
+            capacity <<= 1;
+        }
+        allocate(capacity);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public long footprint() {
+        return (long) corners.length * BYTES_PER_SLOT;
+    }
+
+    @Override
+    public boolean putIfAbsent(long c, long e, byte move) {
+        int i = indexOf(c, e);
+        if (corners[i] != 0) {
+            return false;
+        }
+        corners[i] = c | USED;
+        edges[i] = e;
+        moves[i] = move;
+        if (++size * 2 > corners.length) {
+            grow();
+        }
+        return true;
+    }
+
+    @Override
+    public byte get(long c, long e) {
+        int i = indexOf(c, e);
+        return corners[i] == 0 ? MISSING : moves[i];
+    }
+
+    @Override
+    public boolean contains(long c, long e) {
+        return corners[indexOf(c, e)] != 0;
+    }
+
+    // === HELPER FUNCTIONS ===
+
+    // Slot holding the key, or the empty slot where it would go
+    private int indexOf(long c, long e) {
+        long key = c | USED;
+        int i = hash(c, e) & mask;
+        while (corners[i] != 0 && (corners[i] != key || edges[i] != e)) {
+            i = (i + 1) & mask;
+        }
+        return i;
+    }
+
+    static int hash(long c, long e) {
+        long h = c * 0x9E3779B97F4A7C15L + e;
+        h ^= h >>> 29;
+        h *= 0xBF58476D1CE4E5B9L;
+        return (int) (h ^ h >>> 32);
+    }
+
+    private void allocate(int capacity) {
+        corners = new long[capacity];
+        edges = new long[capacity];
+        moves = new byte[capacity];
+        mask = capacity - 1;
+    }
+
+    private void grow() {
+        long[] oldCorners = corners;
+        long[] oldEdges = edges;
+        byte[] oldMoves = moves;
+        allocate(oldCorners.length * 2);
+        for (int j = 0; j < oldCorners.length; j++) {
+            if (oldCorners[j] != 0) {
+                int i = indexOf(oldCorners[j] & ~USED, oldEdges[j]);
+                corners[i] = oldCorners[j];
+                edges[i] = oldEdges[j];
+                moves[i] = oldMoves[j];
+            }
+        }
+    }
+}
@@ -0,0 +1,73 @@
+package rubikscube;
+
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Thread-safe StateMap: the key space is split by hash into stripes, each a
+ * plain StateMap behind its own lock, so threads only contend when they touch
+ * the same stripe.
+ */
+public class StripedStateMap implements VisitedStates {
+
+    private static final int STRIPE_BITS = 6;
+
+    private final StateMap[] stripes = new StateMap[1 << STRIPE_BITS];
+    // kept apart from the stripes, so reading it takes no lock
+    private final AtomicInteger size = new AtomicInteger();
+
+    public StripedStateMap() {
+        for (int i = 0; i < stripes.length; i++) {
+            stripes[i] = new StateMap();
+        }
+    }
+
+    @Override
+    public int size() {
+        return size.get();
+    }
+
+    @Override
+    public long footprint() {
+        long bytes = 0;
+        for (StateMap stripe : stripes) {
+            synchronized (stripe) {
+                bytes += stripe.footprint();
+            }
+        }
+        return bytes;
+    }
+
+    @Override
+    public boolean putIfAbsent(long c, long e, byte move) {
+        StateMap stripe = stripe(c, e);
+        boolean added;
+        synchronized (stripe) {
+            added = stripe.putIfAbsent(c, e, move);
+        }
+        if (added) {
+            size.incrementAndGet();
+        }
+        return added;
+    }
+
+    @Override
+    public byte get(long c, long e) {
+        StateMap stripe = stripe(c, e);
+        synchronized (stripe) {
+            return stripe.get(c, e);
+        }
+    }
+
+    @Override
+    public boolean contains(long c, long e) {
+        StateMap stripe = stripe(c, e);
+        synchronized (stripe) {
+            return stripe.contains(c, e);
+        }
+    }
+
+    // StateMap indexes with the low hash bits, so pick the stripe with the high ones
+    private StateMap stripe(long c, long e) {
+        return stripes[StateMap.hash(c, e) >>> (32 - STRIPE_BITS)];
+    }
+}
@@ -0,0 +1,138 @@
+package rubikscube;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * The corner pattern database with one entry per symmetry class instead of
+ * one per corner state. All 48 symmetries keep half-turn distances, so every
+ * state in a class has the distance of its representative.
+ *
+ *   classes:   sorted corner indices of the representatives   CLASSES ints, 7.4 MB
+ *   distances: 4 bits per class, in the same order                          0.9 MB
+ *
+ * That is a fifth of PatternDatabase.corners, but a lookup canonicalises
+ * the corners and binary searches the representatives, so it is several
+ * times slower. Meant for memory-bound settings; the solvers default to the
+ * full table.
+ */
+public class SymmetricCornerDatabase implements Heuristic {
+
+    private static final int TABLE_VERSION = 1;
+
+    /** Number of corner states up to symmetry, found by the generator. */
+    static final int CLASSES = 1_841_970;
+
+    private final IntBuffer classes;
+    private final ByteBuffer distances;
+
+    private SymmetricCornerDatabase(IntBuffer classes, ByteBuffer distances) {
+        this.classes = classes;
+        this.distances = distances;
+    }
+
+    /**
+     * @return the database, loaded from or generated into store
+     */
+    public static SymmetricCornerDatabase load(PruningTableStore store) {
+        // one search yields both tables
+        Generator generator = new Generator();
+        IntBuffer classes = store.loadInts("corner-sym-classes", TABLE_VERSION, CLASSES,
+            () -> generator.run().classes);
+        ByteBuffer distances = store.load("corner-sym-pdb", TABLE_VERSION, (CLASSES + 1) / 2,
+            () -> generator.run().distances);
+        return new SymmetricCornerDatabase(classes, distances);
+    }
+
+    @Override
+    public int estimate(CubieCube cube) {
+        int i = find(index(cube.corners));
+        int b = distances.get(i >>> 1);
+        return (i & 1) == 0 ? b & 15 : (b >>> 4) & 15;
+    }
+
+    // === HELPER FUNCTIONS ===
+
+    // Corner index of the representative of packed corners
+    private static int index(long corners) {
+        return PatternDatabase.cornerIndex(
+            new CubieCube(Symmetry.canonicalCorners(corners), CubieCube.SOLVED_EDGES));
+    }
+
+    private int find(int index) {
+        int low = 0;
+        int high = CLASSES - 1;
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int value = classes.get(mid);
+            if (value < index) {
+                low = mid + 1;
+            } else if (value > index) {
+                high = mid - 1;
+            } else {
+                return mid;
+            }
+        }
+        throw new IllegalStateException("Corner class " + index + " is not in the database");
+    }
+
+    /**
+     * Breadth-first search over classes: the half-turn neighbours of a
+     * representative reach every class next to its class, since a
+     * symmetry maps the 18 moves onto themselves.
+     */
+    private static class Generator {
+        int[] classes;
+        byte[] distances;
+
+        Generator run() {
+            if (classes != null) {
+                return this;
+            }
+            StateMap seen = new StateMap(CLASSES);
+            StateList found = new StateList(CLASSES); // representative and its depth
+            StateList frontier = new StateList();
+            seen.putIfAbsent(CubieCube.SOLVED_CORNERS, 0, StateMap.ROOT);
+            found.add(CubieCube.SOLVED_CORNERS, 0);
+            frontier.add(CubieCube.SOLVED_CORNERS, 0);
+
+            CubieCube cube = new CubieCube();
+            for (int depth = 1; frontier.size() > 0; depth++) {
+                StateList next = new StateList();
+                for (int i = 0; i < frontier.size(); i++) {
+                    for (int m = 0; m < Moves.COUNT; m++) {
+                        cube.corners = frontier.corners(i);
+                        cube.move(m);
+                        long representative = Symmetry.canonicalCorners(cube.corners);
+                        if (seen.putIfAbsent(representative, 0, (byte) m)) {
+                            next.add(representative, 0);
+                            found.add(representative, depth);
+                        }
+                    }
+                }
+                frontier = next;
+            }
+            if (found.size() != CLASSES) {
+                throw new IllegalStateException("Found " + found.size() + " corner classes, expected " + CLASSES);
+            }
+
+            // index in the high bits, so sorting the keys sorts by index
+            long[] keys = new long[CLASSES];
+            for (int i = 0; i < CLASSES; i++) {
+                cube.corners = found.corners(i);
+                keys[i] = (long) PatternDatabase.cornerIndex(cube) << 4 | found.edges(i);
+            }
+            Arrays.sort(keys);
+
+            classes = new int[CLASSES];
+            distances = new byte[(CLASSES + 1) / 2];
+            for (int i = 0; i < CLASSES; i++) {
+                classes[i] = (int) (keys[i] >>> 4);
+                int d = (int) (keys[i] & 15);
+                distances[i >>> 1] |= (i & 1) == 0 ? d : d << 4;
+            }
+            return this;
+        }
+    }
+}
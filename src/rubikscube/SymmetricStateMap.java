@@ -0,0 +1,117 @@
+package rubikscube;
+
+/**
+ * Visited set that keeps one state per symmetry class, see
+ * Symmetry.canonical(). Only valid for a breadth-first search rooted at the
+ * solved cube over clockwise quarter turns, whose levels are unions of
+ * whole classes; the set then holds about 48 times fewer states. Such a
+ * search expands each representative and its mirrored inverse,
+ * Symmetry.image(state, Symmetry.ROTATIONS): the neighbours of one
+ * member do not reach every class next to a class.
+ *
+ * Instead of a parent move, each class stores its BFS depth. The move that
+ * reached a state is found on demand as one whose undoing leads to a class
+ * one level shallower, so path() works as for the other visited sets.
+ *
+ * Not thread-safe.
+ */
+public class SymmetricStateMap implements VisitedStates {
+
+    private final VisitedStates depths;
+    private final CubieCube scratch = new CubieCube();
+    // Moves the search used and their images, as a bitmask over Moves
+    private int movesSeen;
+
+    // Depth of the last parent looked up; a search expands a parent's moves together
+    private long parentCorners = -1;
+    private long parentEdges;
+    private byte parentDepth;
+
+    public SymmetricStateMap() {
+        this(new StateMap());
+    }
+
+    /**
+     * @param depths empty set to hold the representatives, e.g. an OffHeapStateMap
+     */
+    public SymmetricStateMap(VisitedStates depths) {
+        this.depths = depths;
+    }
+
+    /**
+     * @param move the move that led here from a state already in the set, or ROOT
+     */
+    @Override
+    public boolean putIfAbsent(long c, long e, byte move) {
+        byte depth = 0;
+        if (move != ROOT) {
+            if ((movesSeen & 1 << move) == 0) {
+                // a symmetry maps a turn to the same turn of any other face
+                for (int face = 0; face < 6; face++) {
+                    movesSeen |= 1 << (face * 3 + move % 3);
+                }
+            }
+            scratch.set(c, e);
+            scratch.move(Moves.inverse(move));
+            if (scratch.corners != parentCorners || scratch.edges != parentEdges) {
+                parentCorners = scratch.corners;
+                parentEdges = scratch.edges;
+                parentDepth = depth(parentCorners, parentEdges);
+            }
+            depth = (byte) (parentDepth + 1);
+        }
+        canonical(c, e);
+        return depths.putIfAbsent(scratch.corners, scratch.edges, depth);
+    }
+
+    /**
+     * @return a move leading to the state from one a level shallower, ROOT, or MISSING
+     */
+    @Override
+    public byte get(long c, long e) {
+        byte depth = depth(c, e);
+        if (depth <= 0) {
+            return depth == 0 ? ROOT : MISSING;
+        }
+        for (int m = 0; m < Moves.COUNT; m++) {
+            if ((movesSeen & 1 << m) == 0) continue;
+            scratch.set(c, e);
+            scratch.move(Moves.inverse(m));
+            if (depth(scratch.corners, scratch.edges) == depth - 1) {
+                return (byte) m;
+            }
+        }
+        throw new IllegalStateException("No parent for a state at depth " + depth);
+    }
+
+    @Override
+    public boolean contains(long c, long e) {
+        canonical(c, e);
+        return depths.contains(scratch.corners, scratch.edges);
+    }
+
+    /** @return number of classes held */
+    @Override
+    public int size() {
+        return depths.size();
+    }
+
+    @Override
+    public long footprint() {
+        return depths.footprint();
+    }
+
+    // === HELPER FUNCTIONS ===
+
+    // Depth of the state's class, or MISSING
+    private byte depth(long c, long e) {
+        canonical(c, e);
+        return depths.get(scratch.corners, scratch.edges);
+    }
+
+    // Leaves the representative of (c, e) in scratch
+    private void canonical(long c, long e) {
+        scratch.set(c, e);
+        Symmetry.canonical(scratch);
+    }
+}
@@ -0,0 +1,358 @@
+package rubikscube;
+
+import java.util.Arrays;
+
+/**
+ * The 48 symmetries of the cube (24 rotations, each with or without a
+ * mirror) acting on cube states by conjugation, and canonical
+ * representatives of the classes they form.
+ *
+ * Conjugating a state by a symmetry turns the whole cube, lets the moves
+ * happen, and turns it back; with the colours relabelled so the centres
+ * stay put, the result is another legal state the same number of moves
+ * from solved. A search rooted at the solved cube can therefore keep one
+ * state per class, and a pattern database one entry per class.
+ *
+ * Symmetries are derived from the sticker geometry: each one is a signed
+ * permutation of the x, y, z axes applied to the 54 facelets. Per symmetry
+ * and slot we keep the slot whose cubie moves there and a 32-entry table
+ * mapping its packed 5-bit value to the new one, as Moves does for turns.
+ */
+public final class Symmetry {
+
+    /** Number of symmetries, rotations first. */
+    public static final int COUNT = 48;
+
+    /** Number of rotations; symmetries ROTATIONS..COUNT-1 are mirrored. */
+    public static final int ROTATIONS = 24;
+
+    // Per symmetry and slot: source slot shift and value transform
+    private static final int[] CORNER_SRC = new int[COUNT * 8];
+    private static final byte[] CORNER_XFORM = new byte[COUNT * 8 * 32];
+    private static final int[] EDGE_SRC = new int[COUNT * 12];
+    private static final byte[] EDGE_XFORM = new byte[COUNT * 12 * 32];
+    // MOVE_CONJUGATE[s * 18 + m] is the move the conjugate of move m by s is
+    private static final int[] MOVE_CONJUGATE = new int[COUNT * Moves.COUNT];
+
+    // Shift of the last corner slot, the most significant in comparisons
+    private static final int TOP_SHIFT = 5 * 7;
+
+    // Even permutations first
+    private static final int[][] AXIS_PERMUTATIONS = {
+        {0, 1, 2}, {1, 2, 0}, {2, 0, 1}, {0, 2, 1}, {2, 1, 0}, {1, 0, 2}
+    };
+
+    static {
+        int[][] position = new int[54][];
+        for (int f = 0; f < 54; f++) {
+            position[f] = position(f);
+        }
+
+        // Signed axis permutations with determinant +1 first
+        int n = 0;
+        for (int mirrored = 0; mirrored < 2; mirrored++) {
+            for (int p = 0; p < 6; p++) {
+                for (int signs = 0; signs < 8; signs++) {
+                    int[] axis = AXIS_PERMUTATIONS[p];
+                    int det = (p < 3 ? 1 : -1) * (Integer.bitCount(signs) % 2 == 0 ? 1 : -1);
+                    if ((det < 0) != (mirrored == 1)) continue;
+
+                    // facelet q of the conjugate shows, recoloured, the sticker at from[q]
+                    int[] from = new int[54];
+                    for (int f = 0; f < 54; f++) {
+                        int[] v = position[f];
+                        int[] w = new int[3];
+                        for (int a = 0; a < 3; a++) {
+                            w[a] = ((signs >> a & 1) == 0 ? 1 : -1) * v[axis[a]];
+                        }
+                        from[find(position, w)] = f;
+                    }
+                    int[] recolour = new int[6];
+                    for (int face = 0; face < 6; face++) {
+                        int centre = from[face * 9 + 4];
+                        recolour[centre / 9] = face;
+                    }
+                    buildTables(n++, from, recolour);
+                }
+            }
+        }
+
+        CubieCube[] turned = new CubieCube[Moves.COUNT];
+        for (int m = 0; m < Moves.COUNT; m++) {
+            turned[m] = new CubieCube();
+            turned[m].move(m);
+        }
+        for (int s = 0; s < COUNT; s++) {
+            for (int m = 0; m < Moves.COUNT; m++) {
+                CubieCube image = new CubieCube(conjugateCorners(turned[m].corners, s),
+                    conjugateEdges(turned[m].edges, s));
+                MOVE_CONJUGATE[s * Moves.COUNT + m] = Arrays.asList(turned).indexOf(image);
+            }
+        }
+    }
+
+    private Symmetry() {
+    }
+
+    /** @return the corners of the conjugate of a state by symmetry s */
+    public static long conjugateCorners(long corners, int s) {
+        long result = 0;
+        int k = s * 8;
+        for (int i = 0; i < 8; i++, k++) {
+            result |= (long) CORNER_XFORM[k * 32 + ((int) (corners >>> CORNER_SRC[k]) & 31)] << (5 * i);
+        }
+        return result;
+    }
+
+    /** @return the edges of the conjugate of a state by symmetry s */
+    public static long conjugateEdges(long edges, int s) {
+        long result = 0;
+        int k = s * 12;
+        for (int i = 0; i < 12; i++, k++) {
+            result |= (long) EDGE_XFORM[k * 32 + ((int) (edges >>> EDGE_SRC[k]) & 31)] << (5 * i);
+        }
+        return result;
+    }
+
+    /**
+     * @return the move that is the conjugate of move m by symmetry s: a turn
+     * of the face s takes m's face to, in the same direction for a rotation
+     * and the opposite one for a mirror
+     */
+    public static int conjugateMove(int m, int s) {
+        return MOVE_CONJUGATE[s * Moves.COUNT + m];
+    }
+
+    /**
+     * @param cube the cube to turn into its inverse, in place
+     * The inverse undoes the cube: a scramble's inverse is reached by
+     * the scramble's moves undone in reverse order
+     */
+    public static void invert(CubieCube cube) {
+        cube.corners = invertCorners(cube.corners);
+        cube.edges = invertEdges(cube.edges);
+    }
+
+    /**
+     * Replaces cube by the representative of its class under the
+     * symmetries that keep distances in clockwise quarter turns, the
+     * move set of the breadth-first searches: the 24 rotations, and the
+     * 24 mirrors combined with taking the inverse (a mirror turns
+     * clockwise turns anticlockwise, the inverse turns them back).
+     * The representative is the image with the smallest packed corners,
+     * then edges.
+     */
+    public static void canonical(CubieCube cube) {
+        long c = cube.corners;
+        long e = cube.edges;
+        long inverseCorners = invertCorners(c);
+        long inverseEdges = invertEdges(e);
+
+        // Only the last corner slot is compared until two symmetries tie on it;
+        // the best image so far is conjugated on the first tie, -1 until then
+        int best = 0;
+        int bestTop = (int) (c >>> TOP_SHIFT);
+        long bestCorners = c;
+        long bestEdges = e;
+        for (int s = 1; s < COUNT; s++) {
+            // rotations conjugate the state, mirrors its inverse
+            long sc = s < ROTATIONS ? c : inverseCorners;
+            long se = s < ROTATIONS ? e : inverseEdges;
+            int k = s * 8 + 7;
+            int top = CORNER_XFORM[k * 32 + ((int) (sc >>> CORNER_SRC[k]) & 31)];
+            if (top < bestTop) {
+                best = s;
+                bestTop = top;
+                bestCorners = -1;
+                bestEdges = -1;
+            } else if (top == bestTop) {
+                if (bestCorners < 0) {
+                    bestCorners = conjugateCorners(best < ROTATIONS ? c : inverseCorners, best);
+                }
+                long imageCorners = conjugateCorners(sc, s);
+                if (imageCorners > bestCorners) continue;
+                long imageEdges = -1;
+                if (imageCorners == bestCorners) {
+                    if (bestEdges < 0) {
+                        bestEdges = conjugateEdges(best < ROTATIONS ? e : inverseEdges, best);
+                    }
+                    imageEdges = conjugateEdges(se, s);
+                    if (imageEdges >= bestEdges) continue;
+                }
+                best = s;
+                bestCorners = imageCorners;
+                bestEdges = imageEdges;
+            }
+        }
+        cube.corners = bestCorners >= 0 ? bestCorners : conjugateCorners(best < ROTATIONS ? c : inverseCorners, best);
+        cube.edges = bestEdges >= 0 ? bestEdges : conjugateEdges(best < ROTATIONS ? e : inverseEdges, best);
+    }
+
+    /**
+     * @return a symmetry s whose image(cube, s) is the representative
+     * canonical() gives
+     */
+    public static int canonicalSymmetry(CubieCube cube) {
+        CubieCube representative = new CubieCube(cube.corners, cube.edges);
+        canonical(representative);
+        CubieCube image = new CubieCube();
+        for (int s = 0; s < COUNT; s++) {
+            image(cube.corners, cube.edges, s, image);
+            if (image.equals(representative)) {
+                return s;
+            }
+        }
+        throw new IllegalStateException("No symmetry maps the cube to its representative");
+    }
+
+    /**
+     * @param cube a state
+     * @param s index of one of the symmetries canonical() uses
+     * @return the image of cube under it, a new cube
+     */
+    public static CubieCube image(CubieCube cube, int s) {
+        CubieCube image = new CubieCube();
+        image(cube.corners, cube.edges, s, image);
+        return image;
+    }
+
+    /**
+     * Allocation-free image(), for loops over all symmetries
+     * @param out cube to hold the image of (corners, edges) under symmetry s
+     */
+    public static void image(long corners, long edges, int s, CubieCube out) {
+        if (s >= ROTATIONS) {
+            corners = invertCorners(corners);
+            edges = invertEdges(edges);
+        }
+        out.corners = conjugateCorners(corners, s);
+        out.edges = conjugateEdges(edges, s);
+    }
+
+    /**
+     * @return the representative of packed corners under all 48 conjugations,
+     * which keep distances in half turns; for corner-only pattern databases
+     */
+    public static long canonicalCorners(long corners) {
+        long best = corners;
+        int bestTop = (int) (corners >>> TOP_SHIFT);
+        for (int s = 1; s < COUNT; s++) {
+            int k = s * 8 + 7;
+            int top = CORNER_XFORM[k * 32 + ((int) (corners >>> CORNER_SRC[k]) & 31)];
+            if (top <= bestTop) {
+                long image = conjugateCorners(corners, s);
+                if (image < best) {
+                    best = image;
+                    bestTop = top;
+                }
+            }
+        }
+        return best;
+    }
+
+    // === HELPER FUNCTIONS ===
+
+    private static long invertCorners(long c) {
+        long inverse = 0;
+        for (int i = 0; i < 8; i++) {
+            int slot = (int) (c >>> (5 * i)) & 31;
+            int twist = (3 - (slot >>> 3)) % 3;
+            inverse |= (long) (i | twist << 3) << (5 * (slot & 7));
+        }
+        return inverse;
+    }
+
+    private static long invertEdges(long e) {
+        long inverse = 0;
+        for (int i = 0; i < 12; i++) {
+            int slot = (int) (e >>> (5 * i)) & 31;
+            inverse |= (long) (i | slot & 16) << (5 * (slot & 15));
+        }
+        return inverse;
+    }
+
+    // Sticker centre of facelet f, in half-cubie units: faces at +-3, stickers at -2, 0, 2
+    private static int[] position(int f) {
+        int face = f / 9;
+        int row = f % 9 / 3 - 1;
+        int col = f % 9 % 3 - 1;
+        switch (face) {
+            case CubieCube.U: return new int[] {2 * col, 3, 2 * row};
+            case CubieCube.R: return new int[] {3, -2 * row, -2 * col};
+            case CubieCube.F: return new int[] {2 * col, -2 * row, 3};
+            case CubieCube.D: return new int[] {2 * col, -3, -2 * row};
+            case CubieCube.L: return new int[] {-3, -2 * row, 2 * col};
+            default:          return new int[] {-2 * col, -2 * row, -3};
+        }
+    }
+
+    private static int find(int[][] position, int[] w) {
+        for (int f = 0; f < 54; f++) {
+            if (position[f][0] == w[0] && position[f][1] == w[1] && position[f][2] == w[2]) {
+                return f;
+            }
+        }
+        throw new IllegalStateException("No facelet at " + w[0] + "," + w[1] + "," + w[2]);
+    }
+
+    // Fills the tables of symmetry s by conjugating cubes whose every slot
+    // holds the same value, and reading each slot of the result back
+    private static void buildTables(int s, int[] from, int[] recolour) {
+        for (int i = 0; i < 8; i++) {
+            int src = slotOf(CubieCube.CORNER_FACELETS, from[CubieCube.CORNER_FACELETS[i][0]]);
+            CORNER_SRC[s * 8 + i] = 5 * src;
+        }
+        for (int i = 0; i < 12; i++) {
+            int src = slotOf(CubieCube.EDGE_FACELETS, from[CubieCube.EDGE_FACELETS[i][0]]);
+            EDGE_SRC[s * 12 + i] = 5 * src;
+        }
+
+        for (int v = 0; v < 32; v++) {
+            int twist = v >>> 3;
+            if (twist < 3) {
+                long corners = 0;
+                for (int i = 0; i < 8; i++) {
+                    corners |= (long) v << (5 * i);
+                }
+                CubieCube conjugate = conjugate(new CubieCube(corners, CubieCube.SOLVED_EDGES), from, recolour, s);
+                for (int i = 0; i < 8; i++) {
+                    CORNER_XFORM[(s * 8 + i) * 32 + v] = (byte) (conjugate.corners >>> (5 * i) & 31);
+                }
+            }
+            if ((v & 15) < 12) {
+                long edges = 0;
+                for (int i = 0; i < 12; i++) {
+                    edges |= (long) v << (5 * i);
+                }
+                CubieCube conjugate = conjugate(new CubieCube(CubieCube.SOLVED_CORNERS, edges), from, recolour, s);
+                for (int i = 0; i < 12; i++) {
+                    EDGE_XFORM[(s * 12 + i) * 32 + v] = (byte) (conjugate.edges >>> (5 * i) & 31);
+                }
+            }
+        }
+    }
+
+    // Conjugates on stickers; cube need not be legal, as long as each slot holds a real cubie
+    private static CubieCube conjugate(CubieCube cube, int[] from, int[] recolour, int s) {
+        int[] facelets = new int[54];
+        int[] image = new int[54];
+        cube.toFacelets(facelets);
+        for (int q = 0; q < 54; q++) {
+            image[q] = recolour[facelets[from[q]]];
+        }
+        try {
+            return CubieCube.fromFacelets(image);
+        } catch (IncorrectFormatException e) {
+            throw new IllegalStateException("Symmetry " + s + " does not map cubies to cubies", e);
+        }
+    }
+
+    private static int slotOf(int[][] slotFacelets, int facelet) {
+        for (int i = 0; i < slotFacelets.length; i++) {
+            for (int f : slotFacelets[i]) {
+                if (f == facelet) return i;
+            }
+        }
+        throw new IllegalStateException("Facelet " + facelet + " is not on a corner or edge");
+    }
+}
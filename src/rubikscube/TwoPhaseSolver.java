@@ -0,0 +1,313 @@
+package rubikscube;
+
+import java.nio.ByteBuffer;
+import java.nio.IntBuffer;
+import java.util.Arrays;
+
+/**
+ * Two-phase (Kociemba) solver.
+ *
+ * Phase 1 searches for a move sequence bringing twist, flip and slice to 0,
+ * i.e. into the subgroup <U, D, R2, L2, F2, B2>. Phase 2 then solves the cube
+ * using only moves from that subgroup. Both phases are IDA* searches over
+ * coordinate move tables, bounded by the max of two pruning tables each.
+ *
+ * The tables are built once per JVM and shared; a TwoPhaseSolver instance
+ * only holds the search stack, so use one instance per thread.
+ */
+public class TwoPhaseSolver {
+
+    /** Default bound on the solution length, in half-turn moves. */
+    public static final int DEFAULT_MAX_LENGTH = 24;
+
+    private static final int MAX_PHASE2_DEPTH = 18;
+    private static final int TABLE_VERSION = 1;
+
+    private final int[] moves = new int[64];
+    private CubieCube start;
+    private int maxLength;
+    private CancellationToken token;
+    private boolean timedOut;
+    private int clockCountdown;
+    private int solutionLength;
+    private long nodes;
+    private long prunes;
+    private int iterations;
+
+    /**
+     * @param cube the cube to solve, not modified
+     * @param maxLength longest acceptable solution, in half-turn moves
+     * @param deadline System.currentTimeMillis() value after which the search gives up
+     * @return the solution in quarter-turn notation (U2 = "UU", U' = "UUU"),
+     * or null if none was found in time
+     */
+    public String solve(CubieCube cube, int maxLength, long deadline) {
+        return solve(cube, maxLength, new CancellationToken(deadline));
+    }
+
+    /**
+     * @param cube the cube to solve, not modified
+     * @param maxLength longest acceptable solution, in half-turn moves
+     * @param token deadline and cancellation of the search
+     * @return the solution in quarter-turn notation, or null if none was
+     * found before the token expired
+     */
+    public String solve(CubieCube cube, int maxLength, CancellationToken token) {
+        Tables t = tables();
+        this.start = cube;
+        this.maxLength = maxLength;
+        this.token = token;
+        this.timedOut = false;
+        this.clockCountdown = CancellationToken.NODES_BETWEEN_CHECKS;
+        this.nodes = 0;
+        this.prunes = 0;
+        this.iterations = 0;
+
+        int twist = Coordinates.twist(cube);
+        int flip = Coordinates.flip(cube);
+        int slice = Coordinates.slice(cube);
+
+        for (int depth = 0; depth <= maxLength; depth++) {
+            iterations++;
+            if (phase1(t, twist, flip, slice, 0, depth)) {
+                return Moves.toString(moves, solutionLength);
+            }
+            if (timedOut) {
+                return null;
+            }
+        }
+        return null;
+    }
+
+    public boolean timedOut() {
+        return timedOut;
+    }
+
+    /** @return nodes of both phases expanded by the last solve() */
+    public long getNodesExplored() {
+        return nodes;
+    }
+
+    /** @return pruning table lookups made by the last solve() */
+    public long getHeuristicCalls() {
+        return prunes;
+    }
+
+    /** @return phase 1 depths tried by the last solve() */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /** @return the moves of the last solution found, see Moves */
+    public int[] getMoves() {
+        return Arrays.copyOf(moves, solutionLength);
+    }
+
+    /**
+     * Loads (or builds) the move and pruning tables if this JVM has not done so yet
+     */
+    public static void warmUp() {
+        tables();
+    }
+
+    /**
+     * @return the store the shared tables were loaded from, for reporting
+     */
+    public static PruningTableStore getTableStore() {
+        tables();
+        return TablesHolder.STORE;
+    }
+
+    // === SEARCH ===
+
+    private boolean phase1(Tables t, int twist, int flip, int slice, int n, int togo) {
+        if (togo == 0) {
+            // A phase 1 ending in a phase 2 move would have been found one level shallower
+            if (twist == 0 && flip == 0 && slice == 0
+                    && (n == 0 || !Coordinates.isPhase2Move(moves[n - 1]))) {
+                return startPhase2(t, n);
+            }
+            return false;
+        }
+
+        prunes++;
+        if (Math.max(t.twistSlicePrune.get(twist * Coordinates.N_SLICE + slice),
+                     t.flipSlicePrune.get(flip * Coordinates.N_SLICE + slice)) > togo) {
+            return false;
+        }
+        if (clockExpired()) {
+            return false;
+        }
+        nodes++;
+
+        for (int m = 0; m < Moves.COUNT; m++) {
+            if (n > 0 && MoveSequence.redundant(moves[n - 1], m)) continue;
+
+            moves[n] = m;
+            if (phase1(t, t.twistMove.get(twist * Moves.COUNT + m), t.flipMove.get(flip * Moves.COUNT + m),
+                       t.sliceMove.get(slice * Moves.COUNT + m), n + 1, togo - 1)) {
+                return true;
+            }
+            if (timedOut) return false;
+        }
+        return false;
+    }
+
+    private boolean startPhase2(Tables t, int n) {
+        CubieCube c = new CubieCube(start.corners, start.edges);
+        for (int i = 0; i < n; i++) {
+            c.move(moves[i]);
+        }
+        int cornerPerm = Coordinates.cornerPerm(c);
+        int edgePerm = Coordinates.udEdgePerm(c);
+        int slicePerm = Coordinates.slicePerm(c);
+
+        int limit = Math.min(maxLength - n, MAX_PHASE2_DEPTH);
+        for (int depth = 0; depth <= limit; depth++) {
+            if (phase2(t, cornerPerm, edgePerm, slicePerm, n, depth)) {
+                return true;
+            }
+            if (timedOut) return false;
+        }
+        return false;
+    }
+
+    private boolean phase2(Tables t, int cornerPerm, int edgePerm, int slicePerm, int n, int togo) {
+        if (togo == 0) {
+            if (cornerPerm == 0 && edgePerm == 0 && slicePerm == 0) {
+                solutionLength = n;
+                return true;
+            }
+            return false;
+        }
+
+        prunes++;
+        if (Math.max(t.cornerSlicePrune.get(cornerPerm * Coordinates.N_SLICE_PERM + slicePerm),
+                     t.edgeSlicePrune.get(edgePerm * Coordinates.N_SLICE_PERM + slicePerm)) > togo) {
+            return false;
+        }
+        if (clockExpired()) {
+            return false;
+        }
+        nodes++;
+
+        for (int m : Coordinates.PHASE2_MOVES) {
+            if (n > 0 && MoveSequence.redundant(moves[n - 1], m)) continue;
+
+            moves[n] = m;
+            if (phase2(t, t.cornerPermMove.get(cornerPerm * Moves.COUNT + m),
+                       t.udEdgePermMove.get(edgePerm * Moves.COUNT + m),
+                       t.slicePermMove.get(slicePerm * Moves.COUNT + m), n + 1, togo - 1)) {
+                return true;
+            }
+            if (timedOut) return false;
+        }
+        return false;
+    }
+
+    private boolean clockExpired() {
+        if (--clockCountdown > 0) {
+            return false;
+        }
+        clockCountdown = CancellationToken.NODES_BETWEEN_CHECKS;
+        if (token.expired()) {
+            timedOut = true;
+        }
+        return timedOut;
+    }
+
+    // === TABLES ===
+
+    private static Tables tables() {
+        return TablesHolder.TABLES;
+    }
+
+    // Lazy, thread-safe initialisation on first use
+    private static class TablesHolder {
+        static final PruningTableStore STORE = PruningTableStore.defaultStore();
+        static final Tables TABLES = new Tables(STORE);
+    }
+
+    static class Tables {
+        final IntBuffer twistMove;
+        final IntBuffer flipMove;
+        final IntBuffer sliceMove;
+        final IntBuffer cornerPermMove;
+        final IntBuffer udEdgePermMove;
+        final IntBuffer slicePermMove;
+
+        final ByteBuffer twistSlicePrune;
+        final ByteBuffer flipSlicePrune;
+        final ByteBuffer cornerSlicePrune;
+        final ByteBuffer edgeSlicePrune;
+
+        Tables(PruningTableStore store) {
+            int n = Moves.COUNT;
+            twistMove = store.loadInts("twist-move", Coordinates.MOVE_TABLE_VERSION, Coordinates.N_TWIST * n,
+                Coordinates::twistMoveTable);
+            flipMove = store.loadInts("flip-move", Coordinates.MOVE_TABLE_VERSION, Coordinates.N_FLIP * n,
+                Coordinates::flipMoveTable);
+            sliceMove = store.loadInts("slice-move", Coordinates.MOVE_TABLE_VERSION, Coordinates.N_SLICE * n,
+                Coordinates::sliceMoveTable);
+            cornerPermMove = store.loadInts("corner-perm-move", Coordinates.MOVE_TABLE_VERSION, Coordinates.N_PERM_8 * n,
+                Coordinates::cornerPermMoveTable);
+            udEdgePermMove = store.loadInts("ud-edge-perm-move", Coordinates.MOVE_TABLE_VERSION, Coordinates.N_PERM_8 * n,
+                Coordinates::udEdgePermMoveTable);
+            slicePermMove = store.loadInts("slice-perm-move", Coordinates.MOVE_TABLE_VERSION, Coordinates.N_SLICE_PERM * n,
+                Coordinates::slicePermMoveTable);
+
+            twistSlicePrune = store.load("twist-slice-prune", TABLE_VERSION,
+                Coordinates.N_TWIST * Coordinates.N_SLICE,
+                () -> pruningTable(twistMove, Coordinates.N_TWIST, sliceMove, Coordinates.N_SLICE, allMoves()));
+            flipSlicePrune = store.load("flip-slice-prune", TABLE_VERSION,
+                Coordinates.N_FLIP * Coordinates.N_SLICE,
+                () -> pruningTable(flipMove, Coordinates.N_FLIP, sliceMove, Coordinates.N_SLICE, allMoves()));
+            cornerSlicePrune = store.load("corner-slice-prune", TABLE_VERSION,
+                Coordinates.N_PERM_8 * Coordinates.N_SLICE_PERM,
+                () -> pruningTable(cornerPermMove, Coordinates.N_PERM_8, slicePermMove,
+                                   Coordinates.N_SLICE_PERM, Coordinates.PHASE2_MOVES));
+            edgeSlicePrune = store.load("edge-slice-prune", TABLE_VERSION,
+                Coordinates.N_PERM_8 * Coordinates.N_SLICE_PERM,
+                () -> pruningTable(udEdgePermMove, Coordinates.N_PERM_8, slicePermMove,
+                                   Coordinates.N_SLICE_PERM, Coordinates.PHASE2_MOVES));
+        }
+    }
+
+    /**
+     * Breadth-first distances from the solved state over the product of two
+     * coordinates, indexed by first * n2 + second.
+     */
+    static byte[] pruningTable(IntBuffer move1, int n1, IntBuffer move2, int n2, int[] allowedMoves) {
+        int size = n1 * n2;
+        byte[] table = new byte[size];
+        Arrays.fill(table, (byte) -1);
+        table[0] = 0;
+
+        int done = 1;
+        for (byte depth = 0; done < size; depth++) {
+            int before = done;
+            for (int i = 0; i < size; i++) {
+                if (table[i] != depth) continue;
+                int c1 = i / n2;
+                int c2 = i % n2;
+                for (int m : allowedMoves) {
+                    int j = move1.get(c1 * Moves.COUNT + m) * n2 + move2.get(c2 * Moves.COUNT + m);
+                    if (table[j] == -1) {
+                        table[j] = (byte) (depth + 1);
+                        done++;
+                    }
+                }
+            }
+            if (done == before) break; // the rest is unreachable
+        }
+        return table;
+    }
+
+    private static int[] allMoves() {
+        int[] all = new int[Moves.COUNT];
+        for (int m = 0; m < Moves.COUNT; m++) {
+            all[m] = m;
+        }
+        return all;
+    }
+}
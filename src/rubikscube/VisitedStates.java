@@ -0,0 +1,49 @@
+package rubikscube;
+
+/**
+ * Visited set of a breadth-first search: packed cube states mapped to the
+ * move that first reached them.
+ */
+public interface VisitedStates {
+
+    /** Value stored for a search root, which has no parent move. */
+    byte ROOT = -1;
+
+    /** Returned by get() for states that are not in the set. */
+    byte MISSING = -2;
+
+    /**
+     * @return true if the state was added, false if it was already present
+     */
+    boolean putIfAbsent(long c, long e, byte move);
+
+    /**
+     * @return the move stored for the state, ROOT, or MISSING
+     */
+    byte get(long c, long e);
+
+    boolean contains(long c, long e);
+
+    int size();
+
+    /** @return bytes of memory held by the set */
+    long footprint();
+
+    /**
+     * @param c packed corners of a state in the set
+     * @param e packed edges of a state in the set
+     * @return the quarter-turn moves leading from the root to that state,
+     * found by undoing parent moves one at a time
+     */
+    default String path(long c, long e) {
+        StringBuilder reversed = new StringBuilder();
+        CubieCube cube = new CubieCube(c, e);
+        byte move;
+        while ((move = get(cube.corners, cube.edges)) >= 0) {
+            reversed.append(Moves.toString(move));
+            cube.move(Moves.inverse(move));
+        }
+        // every move is one letter repeated, so reversing characters reverses moves
+        return reversed.reverse().toString();
+    }
+}